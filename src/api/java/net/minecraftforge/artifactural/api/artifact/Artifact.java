@@ -22,6 +22,10 @@ package net.minecraftforge.artifactural.api.artifact;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 import net.minecraftforge.artifactural.api.cache.ArtifactCache;
 import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
@@ -52,6 +56,17 @@ public interface Artifact {
 
     InputStream openStream() throws IOException, MissingArtifactException;
 
+    /**
+     * Opens the artifact for random access, so consumers such as zip readers can jump to the parts they need.
+     * The default implementation has nothing to seek in, so it reads the whole stream into memory.
+     * Artifacts backed by a file should override this, {@link Cached} does so with a {@link FileChannel}.
+     */
+    default SeekableByteChannel openChannel() throws IOException, MissingArtifactException {
+        try (InputStream is = openStream()) {
+            return new ByteArrayChannel(Internal.readAll(is));
+        }
+    }
+
     interface Cached extends Artifact {
 
         // Gets the file location, AND writes the file to disc if it hasn't already.
@@ -60,6 +75,20 @@ public interface Artifact {
         // Gets the file location, but doesn't guarantee that it exists. As the wrapped Artifact may not of been written. What's the point of this?
         File getFileLocation() throws IOException, MissingArtifactException;
 
+        @Override
+        default SeekableByteChannel openChannel() throws IOException, MissingArtifactException {
+            return FileChannel.open(asFile().toPath(), StandardOpenOption.READ);
+        }
+
+        /**
+         * Maps the whole file read only. The mapping stays valid after this returns, and is released when the buffer is garbage collected.
+         */
+        default ByteBuffer map() throws IOException, MissingArtifactException {
+            try (FileChannel channel = FileChannel.open(asFile().toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
     }
 
 }
@@ -19,7 +19,9 @@
 
 package net.minecraftforge.artifactural.api.artifact;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 
 import net.minecraftforge.artifactural.api.cache.ArtifactCache;
@@ -27,6 +29,15 @@ import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
 
 final class Internal {
 
+    static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = stream.read(buf)) != -1)
+            out.write(buf, 0, read);
+        return out.toByteArray();
+    }
+
     static final ArtifactIdentifier NO_IDENTIFIER = new ArtifactIdentifier() {
 
         @Override
@@ -0,0 +1,75 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.api.instrument;
+
+/**
+ * Sink for counters, timers and histograms recorded along the resolution, transform and cache paths.
+ * Implementations must be thread safe, Gradle resolves configurations in parallel.
+ */
+public interface Instrumentation {
+
+    static Instrumentation noop() {
+        return NoopInstrumentation.INSTANCE;
+    }
+
+    /**
+     * @return {@code false} if nothing recorded through this instance is kept,
+     * callers may use this to skip building metric names or other bookkeeping.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    Counter counter(String name);
+
+    Timer timer(String name);
+
+    Histogram histogram(String name);
+
+    interface Counter {
+
+        default void increment() {
+            add(1);
+        }
+
+        void add(long amount);
+
+    }
+
+    interface Histogram {
+
+        void record(long value);
+
+    }
+
+    interface Timer {
+
+        /**
+         * @return Opaque start marker to be passed to {@link #stop(long)}
+         */
+        long start();
+
+        void stop(long start);
+
+        void record(long nanos);
+
+    }
+
+}
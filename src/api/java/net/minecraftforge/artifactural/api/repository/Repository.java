@@ -20,6 +20,8 @@
 package net.minecraftforge.artifactural.api.repository;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 
 import net.minecraftforge.artifactural.api.artifact.Artifact;
 import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
@@ -28,6 +30,19 @@ public interface Repository {
 
     Artifact getArtifact(ArtifactIdentifier identifier);
 
+    /**
+     * Lists all versions of the specified artifact this repo can provide.
+     * This is preferred over {@link #getMavenMetadata(String, String)}, the maven-metadata.xml is
+     * rendered from it and kept in memory, so dynamic versions such as foo:bar:1.+ don't need any temporary files.
+     *
+     * @param group Group
+     * @param name Artifact name
+     * @return Versions sorted from oldest to newest, the last entry is used as the latest version. Empty if you don't want to list any.
+     */
+    default List<String> listVersions(String group, String name) {
+        return Collections.emptyList();
+    }
+
     /**
      * Returns a file in maven-metadata.xml format for the specified artifact,
      * this is used by gradle to list all known versions, so that it can resolve wildcard
@@ -36,9 +51,19 @@ public interface Repository {
      * @param group Group
      * @param name Artifact name
      * @return maven-metadata.xml file listing all versions of the artifact this repo can provide. Or null if you don't want to list any.
+     * @see #listVersions(String, String)
      */
     default File getMavenMetadata(String group, String name) {
         return null;
     }
 
+    /**
+     * Declares which groups, modules and versions this repo can provide, build tools use it to skip the repo for everything else.
+     *
+     * @return What this repo can provide, or null if it may provide anything.
+     */
+    default RepositoryContent getContent() {
+        return null;
+    }
+
 }
@@ -0,0 +1,55 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.api.repository;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What a {@link Repository} can serve, so the build tool can skip it for everything else.
+ * A module is served if its group or one of the group's parents is in {@link #getGroups()},
+ * or it is listed in {@link #getModules()}, and its version matches one of {@link #getVersionPatterns()}.
+ */
+public interface RepositoryContent {
+
+    /**
+     * @return Groups served together with all their subgroups
+     */
+    Set<String> getGroups();
+
+    /**
+     * @return Single modules served, as {@code group:name}
+     */
+    Set<String> getModules();
+
+    /**
+     * @return Regular expressions the version must match, empty for any version
+     */
+    List<String> getVersionPatterns();
+
+    /**
+     * @param group   Group of the module
+     * @param name    Name of the module
+     * @param version Version of the module, or null when listing versions, then only the group and name are checked
+     * @return {@code true} if the repository may serve this version of the module, always {@code false} when there are no groups or modules
+     */
+    boolean includes(String group, String name, String version);
+
+}
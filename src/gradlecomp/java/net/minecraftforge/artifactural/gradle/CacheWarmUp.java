@@ -0,0 +1,225 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.gradle;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+import net.minecraftforge.artifactural.api.repository.Repository;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import net.minecraftforge.artifactural.base.cache.LocatedArtifactCache;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.util.BlockingExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Materializes a known list of artifacts into a repository's cache ahead of time, several at once,
+ * so a later build finds them all cached instead of computing them one by one during resolution.
+ *
+ * @see GradleRepositoryAdapter#warmUp(Collection, int)
+ */
+public class CacheWarmUp {
+
+    public enum Status {
+        /** Already cached, or backed by a file to begin with. */
+        HIT,
+        /** Computed and written to the cache, also when the cached copy failed verification. */
+        MATERIALIZED,
+        /** The repository doesn't have it. */
+        MISSING,
+        FAILED
+    }
+
+    /**
+     * Parses {@code group:name:version[:classifier][@extension]}, the extension defaults to {@code jar}.
+     */
+    public static ArtifactIdentifier parse(String notation) {
+        String extension = "jar";
+        int at = notation.indexOf('@');
+        if (at != -1) {
+            extension = notation.substring(at + 1);
+            notation = notation.substring(0, at);
+        }
+        String[] parts = notation.split(":");
+        if (parts.length < 3 || parts.length > 4)
+            throw new IllegalArgumentException("Invalid artifact notation, expected group:name:version[:classifier][@extension]: " + notation);
+        return new SimpleArtifactIdentifier(parts[0], parts[1], parts[2], parts.length == 4 ? parts[3] : null, extension);
+    }
+
+    /**
+     * Reads the modules of a Gradle dependency lockfile, returning the pom and jar of each.
+     */
+    public static List<ArtifactIdentifier> readLockfile(File lockfile) throws IOException {
+        List<ArtifactIdentifier> ret = new ArrayList<>();
+        for (String line : Files.readAllLines(lockfile.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("empty="))
+                continue;
+            int equals = line.indexOf('=');
+            String[] parts = (equals == -1 ? line : line.substring(0, equals)).split(":");
+            if (parts.length != 3)
+                continue;
+            ret.add(new SimpleArtifactIdentifier(parts[0], parts[1], parts[2], null, "pom"));
+            ret.add(new SimpleArtifactIdentifier(parts[0], parts[1], parts[2], null, "jar"));
+        }
+        return ret;
+    }
+
+    /**
+     * Runs on the shared {@link BlockingExecutor}, with at most {@code parallelism} artifacts at once.
+     */
+    static Report run(Repository repository, LocatedArtifactCache cache, Collection<? extends ArtifactIdentifier> identifiers, int parallelism) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        long start = System.nanoTime();
+        List<CompletableFuture<Result>> futures = new ArrayList<>();
+        try {
+            for (ArtifactIdentifier identifier : identifiers) {
+                permits.acquire();
+                CompletableFuture<Result> future = BlockingExecutor.shared().submit(() -> warm(repository, cache, identifier));
+                future.whenComplete((result, error) -> permits.release());
+                futures.add(future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (CompletableFuture<Result> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    private static Result warm(Repository repository, LocatedArtifactCache cache, ArtifactIdentifier identifier) {
+        Instrumentation metrics = Metrics.get();
+        long start = System.nanoTime();
+        Status status;
+        String error = null;
+        try {
+            Artifact artifact = repository.getArtifact(identifier);
+            // Check the cache first, isPresent can be as expensive as computing the artifact
+            boolean cached = !(artifact instanceof Artifact.Cached) && cache.contains(artifact);
+            if (!cached && !artifact.isPresent()) {
+                status = Status.MISSING;
+            } else if (artifact instanceof Artifact.Cached) {
+                ((Artifact.Cached) artifact).asFile();
+                status = Status.HIT;
+            } else {
+                artifact.cache(cache).asFile();
+                status = cached ? Status.HIT : Status.MATERIALIZED;
+            }
+        } catch (IOException | RuntimeException e) {
+            status = Status.FAILED;
+            error = e.toString();
+        }
+        metrics.counter("warmup." + status.name().toLowerCase(Locale.ENGLISH)).increment();
+        return new Result(identifier, status, System.nanoTime() - start, error);
+    }
+
+    public static class Result {
+        private final ArtifactIdentifier identifier;
+        private final Status status;
+        private final long nanos;
+        private final String error;
+
+        private Result(ArtifactIdentifier identifier, Status status, long nanos, String error) {
+            this.identifier = identifier;
+            this.status = status;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public ArtifactIdentifier getIdentifier() {
+            return identifier;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return Why it failed, only set for {@link Status#FAILED}
+         */
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "%-12s %9.1fms  %s%s", status, nanos / 1_000_000.0, identifier, error == null ? "" : "  " + error);
+        }
+    }
+
+    public static class Report {
+        private final List<Result> results;
+        private final long nanos;
+
+        private Report(List<Result> results, long nanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return One result per requested identifier, in the order they were given
+         */
+        public List<Result> getResults() {
+            return results;
+        }
+
+        public long count(Status status) {
+            return results.stream().filter(r -> r.status == status).count();
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder ret = new StringBuilder();
+            ret.append(String.format(Locale.ENGLISH, "Warmed up %d artifacts in %.1fs: %d hit, %d materialized, %d missing, %d failed%n",
+                    results.size(), nanos / 1_000_000_000.0, count(Status.HIT), count(Status.MATERIALIZED), count(Status.MISSING), count(Status.FAILED)));
+            for (Result result : results)
+                ret.append("  ").append(result).append(System.lineSeparator());
+            return ret.toString();
+        }
+    }
+}
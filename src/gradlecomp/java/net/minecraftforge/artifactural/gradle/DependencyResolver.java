@@ -21,6 +21,8 @@ package net.minecraftforge.artifactural.gradle;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.ClientModule;
 import org.gradle.api.artifacts.Configuration;
@@ -74,7 +76,9 @@ public class DependencyResolver {
             }
         }
 
+        Instrumentation metrics = Metrics.get();
         if (found) {
+            metrics.counter("resolver.deduplicated").increment();
             try {
                 return future.get();
             } catch (InterruptedException | ExecutionException ex) {
@@ -83,11 +87,18 @@ public class DependencyResolver {
         }
 
         // No other thread is resolving this dep and we've claimed it, so let's go!
-        int currentID = counter.getAndIncrement();
-        Configuration cfg = project.getConfigurations().maybeCreate("resolve_dep_" + currentID);
-        cfg.getDependencies().add(dependency);
-        Set<File> files = cfg.resolve();
-        project.getConfigurations().remove(cfg);
+        Instrumentation.Timer timer = metrics.timer("resolver.resolveDependency");
+        long start = timer.start();
+        Set<File> files;
+        try {
+            int currentID = counter.getAndIncrement();
+            Configuration cfg = project.getConfigurations().maybeCreate("resolve_dep_" + currentID);
+            cfg.getDependencies().add(dependency);
+            files = cfg.resolve();
+            project.getConfigurations().remove(cfg);
+        } finally {
+            timer.stop(start);
+        }
         future.complete(files);
         return files;
     }
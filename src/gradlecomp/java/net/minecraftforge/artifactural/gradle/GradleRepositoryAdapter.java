@@ -23,13 +23,18 @@ import com.google.common.collect.ImmutableList;
 import net.minecraftforge.artifactural.api.artifact.Artifact;
 import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
 import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
 import net.minecraftforge.artifactural.api.repository.Repository;
+import net.minecraftforge.artifactural.api.repository.RepositoryContent;
 import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
 import net.minecraftforge.artifactural.base.cache.LocatedArtifactCache;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import org.gradle.api.Project;
 import org.gradle.api.artifacts.ComponentMetadataSupplierDetails;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.BaseRepositoryFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
@@ -47,6 +52,7 @@ import org.gradle.api.internal.artifacts.repositories.resolver.ExternalResourceR
 import org.gradle.api.internal.artifacts.repositories.resolver.MavenResolver;
 import org.gradle.api.internal.artifacts.repositories.resolver.MetadataFetchingCost;
 import org.gradle.api.internal.component.ArtifactType;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.internal.action.InstantiatingAction;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
@@ -70,6 +76,7 @@ import org.gradle.internal.resource.local.FileResourceRepository;
 import org.gradle.internal.resource.local.LocalFileStandInExternalResource;
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.scopeids.id.BuildInvocationScopeId;
 import org.gradle.internal.resource.transfer.DefaultCacheAwareExternalResourceAccessor;
 import org.gradle.util.GradleVersion;
 
@@ -77,7 +84,11 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -86,8 +97,26 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
     private static final Pattern URL_PATTERN = Pattern.compile(
             "^(?<group>\\S+(?:/\\S+)*)/(?<name>\\S+)/(?<version>\\S+)/" +
             "\\2-\\3(?:-(?<classifier>[^.\\s]+))?\\.(?<extension>\\S+)$");
+    private static final Pattern METADATA_PATTERN = Pattern.compile("^(?<group>\\S+(?:/\\S+)*)/(?<name>[^/\\s]+)/maven-metadata\\.xml$");
+    private static final RateLimitedLogger LOGGER = new RateLimitedLogger(Logging.getLogger(GradleRepositoryAdapter.class), 30, TimeUnit.SECONDS);
+
+    /**
+     * Adds the repository to the project, and on Gradle 6.1+ logs the counts of repeated warnings that are still pending at the end of the build.
+     */
+    public static GradleRepositoryAdapter add(Project project, String name, File local, Repository repository) {
+        if (GradleVersion.current().compareTo(GradleVersion.version("6.1")) >= 0)
+            LogFlushService.register(project);
+        return add(project.getRepositories(), name, local, repository, buildId(project));
+    }
 
+    /**
+     * Without the project the build isn't known, so the cache counts every build of this process as one when collecting garbage.
+     */
     public static GradleRepositoryAdapter add(RepositoryHandler handler, String name, File local, Repository repository) {
+        return add(handler, name, local, repository, null);
+    }
+
+    private static GradleRepositoryAdapter add(RepositoryHandler handler, String name, File local, Repository repository, String build) {
         BaseRepositoryFactory factory = ReflectionUtils.get(handler, "repositoryFactory"); // We reflect here and create it manually so it DOESN'T get attached.
         DefaultMavenLocalArtifactRepository maven = (DefaultMavenLocalArtifactRepository) factory.createMavenLocalRepository(); // We use maven local because it bypasses the caching and coping to .m2
         maven.setUrl(local);
@@ -108,14 +137,34 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
         }
 
         repo.setName(name);
+        if (build != null)
+            repo.cache = new LocatedArtifactCache(new File(repo.root), build);
+        RepositoryContentUtils.include(repo, repository.getContent());
         handler.add(repo);
         return repo;
     }
 
+    /**
+     * @return Id of the current build invocation, the same for every project in it, or null if this Gradle doesn't have one
+     */
+    private static String buildId(Project project) {
+        try {
+            return ((GradleInternal) project.getGradle()).getServices().get(BuildInvocationScopeId.class).getId().asString();
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static void flushLogs() {
+        LOGGER.flush();
+    }
+
     private final Repository repository;
     private final DefaultMavenLocalArtifactRepository local;
     private final String root;
-    private final LocatedArtifactCache cache;
+    private LocatedArtifactCache cache; // Replaced by add once the build is known, before Gradle sees the repository
+    private final MavenMetadataCache metadata;
+    private volatile CachedResolver cachedResolver;
 
 
     // This constructor is modified via bytecode manipulation in 'build.gradle'
@@ -129,6 +178,7 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
         this.local = local;
         this.root = cleanRoot(local.getUrl());
         this.cache = new LocatedArtifactCache(new File(root));
+        this.metadata = new MavenMetadataCache(new File(root));
     }
 
     // This constructor is used on Gradle 7.6 and above
@@ -138,6 +188,7 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
         this.local = local;
         this.root = cleanRoot(local.getUrl());
         this.cache = new LocatedArtifactCache(new File(root));
+        this.metadata = new MavenMetadataCache(new File(root));
     }
 
     private static ObjectFactory getObjectFactory(DefaultMavenLocalArtifactRepository maven) {
@@ -158,6 +209,39 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
 
     @Override
     public ConfiguredModuleComponentRepository createResolver() {
+        // Patching the resolver is expensive reflection work, and Gradle asks for one per configuration resolution.
+        // So keep the last one around as long as the settings it was built from haven't changed.
+        // Sharing it between concurrent resolutions is safe: after patching the MavenResolver no longer changes, its artifact
+        // resolver is created eagerly by the patching and setComponentResolvers is ignored by the wrapper, so only final fields are
+        // read. Everything else goes through GeneratingFileResourceRepository, whose caches are concurrent and write through temp files.
+        List<Object> key = resolverKey();
+        if (key == null)
+            return createPatchedResolver();
+        CachedResolver cached = this.cachedResolver;
+        if (cached != null && cached.key.equals(key))
+            return cached.resolver;
+
+        synchronized (this) {
+            cached = this.cachedResolver;
+            if (cached == null || !cached.key.equals(key)) {
+                cached = new CachedResolver(key, createPatchedResolver());
+                this.cachedResolver = cached;
+            }
+            return cached.resolver;
+        }
+    }
+
+    /**
+     * @return Everything the resolver is built from, or null if that can't be told on this Gradle version and it shouldn't be reused
+     */
+    private List<Object> resolverKey() {
+        // Gradle's own descriptor of the backing repository covers its url, metadata sources, artifact urls and authentication
+        if (GradleVersion.current().compareTo(GradleVersion.version("6.0")) < 0)
+            return null;
+        return Arrays.asList(getName(), local.getName(), local.getDescriptor().getProperties(), repository);
+    }
+
+    private ConfiguredModuleComponentRepository createPatchedResolver() {
         MavenResolver resolver = (MavenResolver) local.createResolver();
 
         GeneratingFileResourceRepository repo = new GeneratingFileResourceRepository();
@@ -313,14 +397,6 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
     private class GeneratingFileResourceRepository implements FileResourceRepository {
         private final FileSystem fileSystem = FileSystems.getDefault();
 
-        private void debug(String message) {
-            //System.out.println(message);
-        }
-
-        private void log(String message) {
-            System.out.println(message);
-        }
-
         @Override
         public ExternalResourceRepository withProgressLogging() {
             return this;
@@ -328,13 +404,13 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
 
         @Override
         public LocalBinaryResource localResource(File file) {
-            debug("localResource: " + file);
+            LOGGER.debug(() -> "localResource: " + file);
             return null;
         }
 
         @Override
         public LocallyAvailableExternalResource resource(File file) {
-            debug("resource(File): " + file);
+            LOGGER.debug(() -> "resource(File): " + file);
             return findArtifact(file.getAbsolutePath().replace('\\', '/'));
         }
 
@@ -345,20 +421,21 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
 
         @Override
         public LocallyAvailableExternalResource resource(ExternalResourceName location, boolean revalidate) {
-            debug("resource(ExternalResourceName,boolean): " + location + ", " + revalidate);
+            LOGGER.debug(() -> "resource(ExternalResourceName,boolean): " + location + ", " + revalidate);
             return findArtifact(location.getUri().getPath().replace('\\', '/'));
         }
 
         @Override
         public LocallyAvailableExternalResource resource(File file, URI originUri, ExternalResourceMetaData originMetadata) {
-            debug("resource(File,URI,ExternalResourceMetaData): " + file + ", " + originUri + ", " + originMetadata);
+            LOGGER.debug(() -> "resource(File,URI,ExternalResourceMetaData): " + file + ", " + originUri + ", " + originMetadata);
             return findArtifact(file.getAbsolutePath().replace('\\', '/'));
         }
 
         private LocallyAvailableExternalResource findArtifact(String path) {
+            Instrumentation metrics = Metrics.get();
             if (path.startsWith(root)) {
                 String relative = path.substring(root.length());
-                debug("  Relative: " + relative);
+                LOGGER.debug(() -> "  Relative: " + relative);
                 Matcher matcher = URL_PATTERN.matcher(relative);
                 if (matcher.matches()) {
                     ArtifactIdentifier identifier = new SimpleArtifactIdentifier(
@@ -367,40 +444,100 @@ public class GradleRepositoryAdapter extends AbstractArtifactRepository implemen
                             matcher.group("version"),
                             matcher.group("classifier"),
                             matcher.group("extension"));
-                    Artifact artifact = repository.getArtifact(identifier);
+                    if (!declares(identifier.getGroup(), identifier.getName(), identifier.getVersion())) {
+                        metrics.counter("repository.outsideContent").increment();
+                        return new LocalFileStandInExternalResource(new File(path), fileSystem);
+                    }
+                    Instrumentation.Timer timer = metrics.timer("repository.getArtifact");
+                    long start = timer.start();
+                    Artifact artifact;
+                    try {
+                        artifact = repository.getArtifact(identifier);
+                    } finally {
+                        timer.stop(start);
+                    }
                     return wrap(artifact, identifier);
                 } else if (relative.endsWith("maven-metadata.xml")) {
-                    String tmp = relative.substring(0, relative.length() - "maven-metadata.xml".length() - 1);
-                    int idx = tmp.lastIndexOf('/');
-                    if (idx != -1) {
-                        File ret = repository.getMavenMetadata(tmp.substring(0, idx - 1), tmp.substring(idx));
+                    metrics.counter("repository.mavenMetadata").increment();
+                    Matcher meta = METADATA_PATTERN.matcher(relative);
+                    if (meta.matches() && declares(meta.group("group").replace('/', '.'), meta.group("name"), null)) {
+                        File ret = findMavenMetadata(meta.group("group").replace('/', '.'), meta.group("name"));
                         if (ret != null) {
                             return new LocalFileStandInExternalResource(ret, fileSystem);
                         }
                     }
                 } else if (relative.endsWith("/")) {
-                    debug("    Directory listing not supported");
+                    LOGGER.debug(() -> "    Directory listing not supported");
                 } else {
-                    log("  Matcher Failed: " + relative);
+                    metrics.counter("repository.unmatched").increment();
+                    LOGGER.warn("Matcher Failed", relative);
                 }
             } else {
-                log("Unknown root: " + path);
+                metrics.counter("repository.unknownRoot").increment();
+                LOGGER.warn("Unknown root", path);
             }
             return new LocalFileStandInExternalResource(new File(path), fileSystem);
         }
 
+        /**
+         * Gradle only asks for declared content when its filter is in place, which a build script can replace,
+         * so anything else is answered as missing here too without asking the repository.
+         */
+        private boolean declares(String group, String name, String version) {
+            RepositoryContent content = repository.getContent();
+            return content == null || content.includes(group, name, version);
+        }
+
+        private File findMavenMetadata(String group, String name) {
+            List<String> versions = repository.listVersions(group, name);
+            if (versions.isEmpty())
+                return repository.getMavenMetadata(group, name);
+            try {
+                return metadata.get(group, name, versions);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         private LocallyAvailableExternalResource wrap(Artifact artifact, ArtifactIdentifier id) {
-            if (!artifact.isPresent())
+            Instrumentation metrics = Metrics.get();
+            if (!artifact.isPresent()) {
+                metrics.counter("repository.missing").increment();
                 return new LocalFileStandInExternalResource(cache.getPath(artifact), fileSystem);
+            }
             Artifact.Cached cached = artifact.optionallyCache(cache);
+            Instrumentation.Timer timer = metrics.timer("repository.asFile");
+            long start = timer.start();
             try {
                 return new LocalFileStandInExternalResource(cached.asFile(), fileSystem);
             } catch (MissingArtifactException | IOException e) {
                 throw new RuntimeException(e);
+            } finally {
+                timer.stop(start);
             }
         }
     }
 
+    private static final class CachedResolver {
+        private final List<Object> key;
+        private final ConfiguredModuleComponentRepository resolver;
+
+        private CachedResolver(List<Object> key, ConfiguredModuleComponentRepository resolver) {
+            this.key = key;
+            this.resolver = resolver;
+        }
+    }
+
+    /**
+     * Materializes the given artifacts into this repository's cache ahead of resolution, with at most {@code parallelism} at once.
+     * Identifiers can come from {@link CacheWarmUp#parse(String)} or {@link CacheWarmUp#readLockfile(File)}.
+     *
+     * @return Per artifact timing and whether it was already cached
+     */
+    public CacheWarmUp.Report warmUp(Collection<? extends ArtifactIdentifier> identifiers, int parallelism) {
+        return CacheWarmUp.run(repository, cache, identifiers, parallelism);
+    }
+
     //TODO: Make this a artifact provider interface with a proper API so we dont have direct reference to GradleRepoAdapter in consumers.
     public File getArtifact(ArtifactIdentifier identifier) {
         Artifact art = repository.getArtifact(identifier);
@@ -0,0 +1,41 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.gradle;
+
+import org.gradle.api.Project;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service that logs the counts of repeated repository warnings still pending when Gradle closes it at the end of the build.
+ */
+public abstract class LogFlushService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    private static final String NAME = "artifacturalLogFlush";
+
+    static void register(Project project) {
+        project.getGradle().getSharedServices().registerIfAbsent(NAME, LogFlushService.class, spec -> {}).get();
+    }
+
+    @Override
+    public void close() {
+        GradleRepositoryAdapter.flushLogs();
+    }
+
+}
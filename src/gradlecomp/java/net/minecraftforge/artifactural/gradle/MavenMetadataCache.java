@@ -0,0 +1,121 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Renders maven-metadata.xml from {@link net.minecraftforge.artifactural.api.repository.Repository#listVersions(String, String)}
+ * and keeps the result in memory. The version list acts as the ETag, the file Gradle reads is only rewritten when it changes.
+ */
+class MavenMetadataCache {
+    private final File root;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    MavenMetadataCache(File root) {
+        this.root = root;
+    }
+
+    File get(String group, String name, List<String> versions) throws IOException {
+        String key = group + ':' + name;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.versions.equals(versions))
+            return entry.file;
+
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.versions.equals(versions))
+                return entry.file;
+
+            byte[] data = render(group, name, versions);
+            File file = new File(root, group.replace('.', '/') + '/' + name + "/maven-metadata.xml");
+            if (!matches(file, data)) {
+                file.getParentFile().mkdirs();
+                // Other processes may write the same file, so every writer gets its own temporary file
+                File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+                try {
+                    Files.write(tmp.toPath(), data);
+                    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    // Windows refuses to replace a file another process has open, fine if that one wrote the same
+                    if (!matches(file, data))
+                        throw e;
+                } finally {
+                    Files.deleteIfExists(tmp.toPath());
+                }
+            }
+            entries.put(key, new Entry(new ArrayList<>(versions), file));
+            return file;
+        }
+    }
+
+    private static boolean matches(File file, byte[] data) throws IOException {
+        return file.exists() && Arrays.equals(Files.readAllBytes(file.toPath()), data);
+    }
+
+    static byte[] render(String group, String name, List<String> versions) {
+        String latest = versions.get(versions.size() - 1);
+        String release = null;
+        for (int x = versions.size() - 1; x >= 0 && release == null; x--) {
+            if (!versions.get(x).endsWith("-SNAPSHOT"))
+                release = versions.get(x);
+        }
+
+        StringBuilder buf = new StringBuilder();
+        buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        buf.append("<metadata>\n");
+        buf.append("  <groupId>").append(escape(group)).append("</groupId>\n");
+        buf.append("  <artifactId>").append(escape(name)).append("</artifactId>\n");
+        buf.append("  <versioning>\n");
+        buf.append("    <latest>").append(escape(latest)).append("</latest>\n");
+        if (release != null)
+            buf.append("    <release>").append(escape(release)).append("</release>\n");
+        buf.append("    <versions>\n");
+        for (String version : versions)
+            buf.append("      <version>").append(escape(version)).append("</version>\n");
+        buf.append("    </versions>\n");
+        buf.append("  </versioning>\n");
+        buf.append("</metadata>\n");
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static class Entry {
+        private final List<String> versions;
+        private final File file;
+
+        private Entry(List<String> versions, File file) {
+            this.versions = versions;
+            this.file = file;
+        }
+    }
+}
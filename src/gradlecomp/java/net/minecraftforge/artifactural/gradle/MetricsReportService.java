@@ -0,0 +1,65 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.gradle;
+
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.instrument.RecordingInstrumentation;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service that records Artifactural metrics for the lifetime of a build,
+ * and logs a summary when Gradle closes it at the end of the build.
+ */
+public abstract class MetricsReportService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    private static final String NAME = "artifacturalMetrics";
+    private static final Logger LOGGER = Logging.getLogger(MetricsReportService.class);
+
+    /**
+     * Enables metric recording for the current build, the report is printed once the build finishes.
+     * Without calling this all instrumentation points use the no-op implementation.
+     */
+    public static void enable(Project project) {
+        project.getGradle().getSharedServices().registerIfAbsent(NAME, MetricsReportService.class, spec -> {}).get();
+    }
+
+    private final RecordingInstrumentation instrumentation = new RecordingInstrumentation();
+
+    public MetricsReportService() {
+        Metrics.install(instrumentation);
+    }
+
+    public RecordingInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    @Override
+    public void close() {
+        // Only this build's recorder, other builds in the same daemon keep theirs
+        Metrics.uninstall(instrumentation);
+        String report = instrumentation.report();
+        if (!report.isEmpty())
+            LOGGER.lifecycle("Artifactural metrics:\n" + report);
+    }
+
+}
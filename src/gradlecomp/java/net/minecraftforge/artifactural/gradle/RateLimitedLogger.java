@@ -0,0 +1,132 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.gradle;
+
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Level gated wrapper around a Gradle {@link Logger}.
+ * Messages are built lazily, and repeats of the same (category, detail) pair are only
+ * logged once per interval with a count of how many were suppressed in between.
+ * Counts still pending are logged by {@link #flush()}, which {@link LogFlushService} calls at the end of every build.
+ */
+class RateLimitedLogger {
+    private static final int MAX_KEYS = 1024;
+
+    private final Logger logger;
+    private final long intervalNanos;
+    private final ConcurrentMap<Key, Entry> seen = new ConcurrentHashMap<>();
+
+    RateLimitedLogger(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    void debug(Supplier<String> message) {
+        if (logger.isDebugEnabled())
+            logger.debug(message.get());
+    }
+
+    void warn(String category, String detail) {
+        log(LogLevel.WARN, category, detail);
+    }
+
+    private void log(LogLevel level, String category, String detail) {
+        if (!logger.isEnabled(level))
+            return;
+
+        Key key = new Key(category, detail);
+        if (seen.size() >= MAX_KEYS && !seen.containsKey(key))
+            flush();
+        Entry entry = seen.computeIfAbsent(key, k -> new Entry(level));
+        long now = System.nanoTime();
+        long last = entry.lastLogged.get();
+        if (last != 0 && now - last < intervalNanos) {
+            entry.suppressed.incrementAndGet();
+            return;
+        }
+        if (!entry.lastLogged.compareAndSet(last, now)) {
+            entry.suppressed.incrementAndGet();
+            return;
+        }
+
+        int suppressed = entry.suppressed.getAndSet(0);
+        if (suppressed == 0)
+            logger.log(level, "{}: {}", category, detail);
+        else
+            logger.log(level, "{}: {} (repeated {} more times)", category, detail, suppressed);
+    }
+
+    /**
+     * Logs the counts of messages suppressed since they were last logged, and forgets every message seen so far.
+     */
+    void flush() {
+        for (Key key : seen.keySet()) {
+            Entry entry = seen.remove(key);
+            if (entry == null)
+                continue;
+            int suppressed = entry.suppressed.getAndSet(0);
+            if (suppressed > 0)
+                logger.log(entry.level, "{}: {} (repeated {} more times)", key.category, key.detail, suppressed);
+        }
+    }
+
+    private static final class Entry {
+        private final LogLevel level;
+        private final AtomicLong lastLogged = new AtomicLong();
+        private final AtomicInteger suppressed = new AtomicInteger();
+
+        private Entry(LogLevel level) {
+            this.level = level;
+        }
+    }
+
+    private static final class Key {
+        private final String category;
+        private final String detail;
+
+        private Key(String category, String detail) {
+            this.category = category;
+            this.detail = detail;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return category.equals(other.category) && Objects.equals(detail, other.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * category.hashCode() + Objects.hashCode(detail);
+        }
+    }
+}
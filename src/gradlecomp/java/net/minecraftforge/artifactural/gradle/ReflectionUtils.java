@@ -21,66 +21,74 @@ package net.minecraftforge.artifactural.gradle;
 
 import net.minecraftforge.fml.unsafe.UnsafeHacks;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.UnaryOperator;
 
 public class ReflectionUtils {
 
+    // Resolved fields and methods per class. Plain maps owned by this class rather than ClassValue: a ClassValue stores its values on
+    // the key class, so Gradle's long lived classes would hold these handles and through them this plugin's classloader. This way the
+    // references only go from the plugin to Gradle's classes, which outlive it anyway, and the caches go away with the plugin.
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, FieldHandle>> FIELDS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Method>> METHODS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String[]> PATHS = new ConcurrentHashMap<>();
+    private static final FieldHandle MISSING = new FieldHandle();
+
     @SuppressWarnings("unchecked")
     public static <T> void alter(Object target, String name, UnaryOperator<T> operator) {
-        try {
-            int idx = name.lastIndexOf('.');
-            if (idx != -1) {
-                target = drillField(target, name.substring(0, idx));
-                if (target == null) throw new IllegalStateException("Could not find field '" + name + "'");
-                name = name.substring(idx + 1);
-            }
-            Field f = findField(target.getClass(), name);
-            if (f == null) throw new IllegalStateException("Could not find '" + name + "'");
-
-            T oldV = (T)f.get(target);
-            T newV = operator.apply(oldV);
-            if (Modifier.isFinal(f.getModifiers())) {
-                UnsafeHacks.setField(f, target, newV);
-            } else {
-                f.set(target, newV);
-            }
+        String[] path = split(name);
+        target = drillField(target, path, path.length - 1);
+        if (target == null) throw new IllegalStateException("Could not find field '" + name + "'");
+        String last = path[path.length - 1];
+        FieldHandle f = findField(target.getClass(), last);
+        if (f == null) throw new IllegalStateException("Could not find '" + last + "'");
 
-            if (f.get(target) != newV) {
-                throw new IllegalStateException("Failed to set new value on " + f.getDeclaringClass().getName() + "." + f.getName());
-            }
-        } catch (IllegalAccessException ex) {
-            throw new RuntimeException(ex);
+        T oldV = (T)f.get(target);
+        T newV = operator.apply(oldV);
+        f.set(target, newV);
+
+        if (f.get(target) != newV) {
+            throw new IllegalStateException("Failed to set new value on " + f.field.getDeclaringClass().getName() + "." + f.field.getName());
         }
     }
 
-    private static Object drillField(Object obj, String path) {
-        for (String name : path.split("\\.")) {
+    private static String[] split(String path) {
+        return PATHS.computeIfAbsent(path, k -> k.split("\\."));
+    }
+
+    private static Object drillField(Object obj, String[] path, int length) {
+        for (int x = 0; x < length; x++) {
             if (obj == null) return null;
-            Field f = findField(obj.getClass(), name);
+            FieldHandle f = findField(obj.getClass(), path[x]);
             if (f == null) return null;
-            try {
-                obj = f.get(obj);
-            } catch (IllegalAccessException e) {
-                return null;
-            }
+            obj = f.get(obj);
         }
         return obj;
     }
 
-    private static Field findField(Class<?> clazz, String name) {
+    private static FieldHandle findField(Class<?> clazz, String name) {
+        FieldHandle ret = FIELDS.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>()).computeIfAbsent(name, k -> lookupField(clazz, k));
+        return ret == MISSING ? null : ret;
+    }
+
+    private static FieldHandle lookupField(Class<?> clazz, String name) {
         while (clazz != Object.class) {
             for (Field f : clazz.getDeclaredFields()) {
                 if (f.getName().equals(name)) {
                     f.setAccessible(true);
-                    return f;
+                    return new FieldHandle(f);
                 }
             }
             clazz = clazz.getSuperclass();
         }
-        return null;
+        return MISSING;
     }
 
     /**
@@ -89,9 +97,18 @@ public class ReflectionUtils {
     @SuppressWarnings("unchecked")
     public static <T> T invoke(Object target, Class<?> type, String name, Object... args) {
         try {
-            Method method = type.getDeclaredMethod(name);
-            method.setAccessible(true);
+            Method method = METHODS.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).computeIfAbsent(name, k -> {
+                try {
+                    Method ret = type.getDeclaredMethod(k);
+                    ret.setAccessible(true);
+                    return ret;
+                } catch (NoSuchMethodException ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
             return (T) method.invoke(target, args);
+        } catch (RuntimeException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -99,18 +116,66 @@ public class ReflectionUtils {
 
     @SuppressWarnings("unchecked")
     public static <T> T get(Object target, String name) {
-        try {
-            int idx = name.lastIndexOf('.');
-            if (idx != -1) {
-                target = drillField(target, name.substring(0, idx));
-                if (target == null) throw new IllegalStateException("Could not find field '" + name + "'");
-                name = name.substring(idx + 1);
+        String[] path = split(name);
+        target = drillField(target, path, path.length - 1);
+        if (target == null) throw new IllegalStateException("Could not find field '" + name + "'");
+        String last = path[path.length - 1];
+        FieldHandle f = findField(target.getClass(), last);
+        if (f == null) throw new IllegalStateException("Could not find '" + last + "'");
+        return (T)f.get(target);
+    }
+
+    private static final class FieldHandle {
+        private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final Field field;
+        private final MethodHandle getter;
+        private final MethodHandle setter; // null for final fields, those have to go through UnsafeHacks
+
+        private FieldHandle() {
+            this.field = null;
+            this.getter = null;
+            this.setter = null;
+        }
+
+        private FieldHandle(Field field) {
+            this.field = field;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle getter = lookup.unreflectGetter(field);
+                MethodHandle setter = Modifier.isFinal(field.getModifiers()) ? null : lookup.unreflectSetter(field);
+                if (Modifier.isStatic(field.getModifiers())) {
+                    // Keep the same shape as instance fields, the target is ignored like Field.get does
+                    getter = MethodHandles.dropArguments(getter, 0, Object.class);
+                    if (setter != null)
+                        setter = MethodHandles.dropArguments(setter, 0, Object.class);
+                }
+                this.getter = getter.asType(GETTER);
+                this.setter = setter == null ? null : setter.asType(SETTER);
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+
+        private void set(Object target, Object value) {
+            if (setter == null) {
+                UnsafeHacks.setField(field, target, value);
+                return;
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
             }
-            Field f = findField(target.getClass(), name);
-            if (f == null) throw new IllegalStateException("Could not find '" + name + "'");
-            return (T)f.get(target);
-        } catch (IllegalAccessException ex) {
-            throw new RuntimeException(ex);
         }
     }
 }
@@ -20,6 +20,9 @@
 package net.minecraftforge.artifactural.gradle;
 
 import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.repository.RepositoryContent;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.repository.RoutingRepository;
 import org.gradle.api.Action;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
@@ -29,10 +32,23 @@ import org.gradle.api.internal.artifacts.repositories.ArtifactResolutionDetails;
 import org.gradle.api.internal.artifacts.repositories.ContentFilteringRepository;
 import org.gradle.api.internal.attributes.ImmutableAttributes;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
 public class RepositoryContentUtils {
+    private static final int MAX_VERDICTS = 10_000;
+    private static final Map<ArtifactRepository, Verdicts> VERDICTS = Collections.synchronizedMap(new WeakHashMap<>());
 
     /**
      * Checks if a repository is filtered to exclude a given artifact.
+     * Verdicts are remembered per repository and module version, until the repository's content filter changes.
      *
      * @param repository Repository that may have filtering.
      * @param artifact   Artifact to test.
@@ -40,16 +56,128 @@ public class RepositoryContentUtils {
      * @return {@code true} if the repository has a content filter that excludes the given artifact.
      */
     public static boolean contentFilterExcludes(ArtifactRepository repository, ArtifactIdentifier artifact) {
-        if (repository instanceof ContentFilteringRepository) {
+        if (repository instanceof ContentFilteringRepository)
+            return verdicts((ContentFilteringRepository) repository).excludes(artifact);
+        //If it can't be filtered then it can't be excluded
+        return false;
+    }
+
+    /**
+     * Checks a set of artifacts against a set of repositories at once, looking up each repository's filter only once.
+     *
+     * @param artifacts    Artifacts to test.
+     * @param repositories Repositories that may have filtering.
+     *
+     * @return For every artifact, in the given order, the repositories whose content filter doesn't exclude it, in the given order.
+     */
+    public static Map<ArtifactIdentifier, List<ArtifactRepository>> contentFilterIncludes(Collection<? extends ArtifactIdentifier> artifacts,
+            Collection<? extends ArtifactRepository> repositories) {
+        Map<ArtifactRepository, Verdicts> filters = new LinkedHashMap<>();
+        for (ArtifactRepository repository : repositories)
+            filters.put(repository, repository instanceof ContentFilteringRepository ? verdicts((ContentFilteringRepository) repository) : null);
+
+        Map<ArtifactIdentifier, List<ArtifactRepository>> ret = new LinkedHashMap<>();
+        for (ArtifactIdentifier artifact : artifacts) {
+            List<ArtifactRepository> included = new ArrayList<>();
+            filters.forEach((repository, verdicts) -> {
+                if (verdicts == null || !verdicts.excludes(artifact))
+                    included.add(repository);
+            });
+            ret.put(artifact, included);
+        }
+        return ret;
+    }
+
+    private static Verdicts verdicts(ContentFilteringRepository repository) {
+        Action<? super ArtifactResolutionDetails> contentFilter = repository.getContentFilter();
+        ArtifactRepository key = (ArtifactRepository) repository;
+        synchronized (VERDICTS) {
+            Verdicts verdicts = VERDICTS.get(key);
+            // Gradle builds a new filter whenever the content descriptor was changed
+            if (verdicts == null || verdicts.contentFilter != contentFilter) {
+                verdicts = new Verdicts(contentFilter);
+                VERDICTS.put(key, verdicts);
+            }
+            return verdicts;
+        }
+    }
+
+    /**
+     * Restricts a repository to the groups and modules a {@link RoutingRepository} has routes for,
+     * so Gradle doesn't ask it for anything else. Does nothing if one of the routes takes everything.
+     *
+     * @param repository Repository to filter.
+     * @param routing    Routes of the repository.
+     *
+     * @return {@code true} if a filter was added.
+     */
+    public static boolean includeRoutes(ArtifactRepository repository, RoutingRepository routing) {
+        return include(repository, routing.getContent());
+    }
+
+    /**
+     * Restricts a repository to the declared content, so Gradle doesn't ask it for anything else.
+     *
+     * @param repository Repository to filter.
+     * @param content    What the repository can provide, may be null.
+     *
+     * @return {@code true} if a filter was added, {@code false} if the content was null and the repository is left unfiltered.
+     *         Content without any groups or modules excludes everything, an empty filter would include everything instead.
+     */
+    public static boolean include(ArtifactRepository repository, RepositoryContent content) {
+        if (content == null)
+            return false;
+        if (content.getGroups().isEmpty() && content.getModules().isEmpty()) {
+            repository.content(descriptor -> descriptor.excludeGroupByRegex(".*"));
+            return true;
+        }
+        List<String> versions = content.getVersionPatterns();
+        repository.content(descriptor -> {
+            for (String group : content.getGroups()) {
+                String groupRegex = Pattern.quote(group) + "(\\..+)?";
+                if (versions.isEmpty())
+                    descriptor.includeGroupByRegex(groupRegex);
+                for (String version : versions)
+                    descriptor.includeVersionByRegex(groupRegex, ".*", version);
+            }
+            for (String module : content.getModules()) {
+                int colon = module.indexOf(':');
+                String group = module.substring(0, colon);
+                String name = module.substring(colon + 1);
+                if (versions.isEmpty())
+                    descriptor.includeModule(group, name);
+                for (String version : versions)
+                    descriptor.includeVersionByRegex(Pattern.quote(group), Pattern.quote(name), version);
+            }
+        });
+        return true;
+    }
+
+    private static class Verdicts {
+        private final Action<? super ArtifactResolutionDetails> contentFilter;
+        private final Map<String, Boolean> excluded = new ConcurrentHashMap<>();
+
+        private Verdicts(Action<? super ArtifactResolutionDetails> contentFilter) {
+            this.contentFilter = contentFilter;
+        }
+
+        private boolean excludes(ArtifactIdentifier artifact) {
+            String key = artifact.getGroup() + ':' + artifact.getName() + ':' + artifact.getVersion();
+            Boolean verdict = excluded.get(key);
+            if (verdict != null) {
+                Metrics.get().counter("contentFilter.hit").increment();
+                return verdict;
+            }
+            Metrics.get().counter("contentFilter.miss").increment();
             //Check if the repo is configured in such a way as to support this artifact or not
-            Action<? super ArtifactResolutionDetails> contentFilter = ((ContentFilteringRepository) repository).getContentFilter();
             ContentResolutionTracker details = new ContentResolutionTracker(artifact);
             contentFilter.execute(details);
-            //Return whether the resolution details match the content filter
+            if (excluded.size() >= MAX_VERDICTS)
+                excluded.clear();
+            //Remember whether the resolution details match the content filter
+            excluded.put(key, details.wontBeFound);
             return details.wontBeFound;
         }
-        //If it can't be filtered then it can't be excluded
-        return false;
     }
 
     private static class ContentResolutionTracker implements ArtifactResolutionDetails {
@@ -0,0 +1,83 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.jmh;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.cache.LocatedArtifactCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes an artifact into the cache from scratch on every invocation, measuring the copy loop in ArtifactCacheBase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ArtifactCacheBaseBenchmark {
+
+    @Param({"1024", "1048576", "16777216"})
+    public int size;
+
+    private File root;
+    private LocatedArtifactCache cache;
+    private Artifact artifact;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Benchmarks.tempDir("cache");
+        cache = new LocatedArtifactCache(root);
+        artifact = StreamableArtifact.ofBytes(Benchmarks.identifier("forge"), ArtifactType.BINARY, Benchmarks.randomBytes(size));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Benchmarks.delete(root);
+    }
+
+    @Setup(Level.Invocation)
+    public void clean() {
+        cache.getPath(artifact).delete();
+    }
+
+    @Benchmark
+    public File materialize() throws IOException {
+        return cache.store(artifact).asFile();
+    }
+}
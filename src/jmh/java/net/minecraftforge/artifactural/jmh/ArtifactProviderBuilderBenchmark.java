@@ -0,0 +1,89 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.jmh;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.api.repository.ArtifactProvider;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.repository.ArtifactProviderBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch through N providers where only the provider for the requested name answers.
+ * A miss has to probe every provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArtifactProviderBuilderBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int providers;
+
+    private ArtifactProvider<ArtifactIdentifier> provider;
+    private ArtifactIdentifier hit;
+    private ArtifactIdentifier miss;
+
+    @Setup
+    public void setup() {
+        ArtifactProvider.Builder.Complete<ArtifactIdentifier, ArtifactIdentifier> builder = null;
+        for (int x = 0; x < providers; x++) {
+            String name = "artifact" + x;
+            Artifact artifact = StreamableArtifact.ofBytes(Benchmarks.identifier(name), ArtifactType.BINARY, new byte[0]);
+            ArtifactProvider<ArtifactIdentifier> next = info -> name.equals(info.getName()) ? artifact : Artifact.none();
+            if (builder == null)
+                builder = ArtifactProviderBuilder.begin(ArtifactIdentifier.class)
+                        .filter(ArtifactIdentifier.groupEquals("net.minecraftforge"))
+                        .provide(next);
+            else
+                builder.provide(next);
+        }
+        provider = builder;
+        hit = Benchmarks.identifier("artifact" + (providers - 1));
+        miss = Benchmarks.identifier("missing");
+    }
+
+    @Benchmark
+    public Artifact hit() {
+        return provider.getArtifact(hit);
+    }
+
+    @Benchmark
+    public Artifact miss() {
+        return provider.getArtifact(miss);
+    }
+}
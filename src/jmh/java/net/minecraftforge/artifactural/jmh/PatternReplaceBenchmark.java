@@ -0,0 +1,73 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.jmh;
+
+import net.minecraftforge.artifactural.base.util.PatternReplace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternReplaceBenchmark {
+    private static final String PATTERN = "[group]/[name](/[meta_hash])/[version]/[name]-[version](-[classifier])(-[specifier]).[extension]";
+
+    private Map<String, String> full;
+    private Map<String, String> minimal;
+
+    @Setup
+    public void setup() {
+        minimal = new HashMap<>();
+        minimal.put("group", "net.minecraftforge");
+        minimal.put("name", "forge");
+        minimal.put("version", "1.20.1-47.1.0");
+        minimal.put("extension", "jar");
+
+        full = new HashMap<>(minimal);
+        full.put("classifier", "universal");
+        full.put("specifier", "srg");
+        full.put("meta_hash", "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+    }
+
+    @Benchmark
+    public String allOptionals() {
+        return PatternReplace.replace(PATTERN, full);
+    }
+
+    @Benchmark
+    public String noOptionals() {
+        return PatternReplace.replace(PATTERN, minimal);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.jmh;
+
+import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleArtifactMetadataBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    private ArtifactMetadata base;
+    private ArtifactMetadata hashed;
+
+    @Setup
+    public void setup() {
+        ArtifactMetadata meta = new SimpleArtifactMetadata();
+        for (int x = 0; x < depth - 1; x++)
+            meta = meta.with("transformer" + x, "net.minecraftforge.gradle.Transformer" + x);
+        base = meta;
+        hashed = base.with("last", "value");
+        hashed.getHash();
+    }
+
+    @Benchmark
+    public ArtifactMetadata with() {
+        return base.with("last", "value");
+    }
+
+    @Benchmark
+    public String withThenHash() {
+        return base.with("last", "value").getHash();
+    }
+
+    @Benchmark
+    public String cachedHash() {
+        return hashed.getHash();
+    }
+}
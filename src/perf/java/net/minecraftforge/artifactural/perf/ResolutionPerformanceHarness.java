@@ -0,0 +1,183 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.perf;
+
+import org.gradle.testkit.runner.GradleRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a {@link SyntheticBuild} through TestKit against several Gradle versions and reports how long resolution takes
+ * with a cold Artifactural cache, a warm one, and with the configuration cache enabled.
+ *
+ * <p>Configured through system properties, see the 'perfHarness' task in build.gradle:</p>
+ * <ul>
+ *   <li>{@code artifactural.perf.classpath} Artifactural jar and its runtime dependencies, passed to the generated build</li>
+ *   <li>{@code artifactural.perf.gradleVersions} Comma separated Gradle versions</li>
+ *   <li>{@code artifactural.perf.artifacts}, {@code .size}, {@code .depth} Shape of the synthetic repository</li>
+ *   <li>{@code artifactural.perf.iterations} How many times each scenario is measured</li>
+ *   <li>{@code artifactural.perf.workDir}, {@code artifactural.perf.report} Where to build and where to write the JSON report</li>
+ * </ul>
+ */
+public class ResolutionPerformanceHarness {
+    private static final String TASK = "resolveSynthetic";
+
+    public static void main(String[] args) throws IOException {
+        List<File> classpath = Arrays.stream(required("artifactural.perf.classpath").split(File.pathSeparator))
+                .filter(s -> !s.isEmpty())
+                .map(File::new)
+                .collect(Collectors.toList());
+        List<String> versions = Arrays.asList(System.getProperty("artifactural.perf.gradleVersions", "7.6.4,8.2.1,8.7").split(","));
+        int artifacts = Integer.getInteger("artifactural.perf.artifacts", 200);
+        int size = Integer.getInteger("artifactural.perf.size", 64 * 1024);
+        int depth = Integer.getInteger("artifactural.perf.depth", 3);
+        int iterations = Integer.getInteger("artifactural.perf.iterations", 3);
+        File workDir = new File(required("artifactural.perf.workDir"));
+        File report = new File(required("artifactural.perf.report"));
+
+        SyntheticBuild build = new SyntheticBuild(artifacts, size, depth);
+        List<Result> results = new ArrayList<>();
+        for (String version : versions) {
+            version = version.trim();
+            File projectDir = new File(workDir, "gradle-" + version);
+            delete(projectDir);
+            build.write(projectDir, classpath);
+            // TestKit dir is shared per version so daemons and distributions are reused between runs
+            File testKitDir = new File(workDir, "testkit-" + version);
+
+            // First build only warms up the daemon, so startup isn't counted against resolution
+            runner(version, projectDir, testKitDir, "help").build();
+
+            for (int x = 0; x < iterations; x++) {
+                delete(new File(projectDir, "synthetic-repo"));
+                results.add(measure(version, "cold", runner(version, projectDir, testKitDir, TASK, "--rerun-tasks")));
+                results.add(measure(version, "warm", runner(version, projectDir, testKitDir, TASK, "--rerun-tasks")));
+            }
+
+            // Store the configuration cache entry once, then measure builds that load it
+            delete(new File(projectDir, ".gradle/configuration-cache"));
+            Result store = measure(version, "configuration-cache-store", runner(version, projectDir, testKitDir, TASK, "--rerun-tasks", "--configuration-cache"));
+            results.add(store);
+            if (store.failure == null) {
+                for (int x = 0; x < iterations; x++)
+                    results.add(measure(version, "configuration-cache", runner(version, projectDir, testKitDir, TASK, "--rerun-tasks", "--configuration-cache")));
+            }
+        }
+
+        System.out.println(build);
+        for (Result result : results)
+            System.out.println(result);
+
+        report.getParentFile().mkdirs();
+        String json = results.stream().map(Result::toJson).collect(Collectors.joining(",\n  ", "[\n  ", "\n]\n"));
+        Files.write(report.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + report);
+    }
+
+    private static GradleRunner runner(String version, File projectDir, File testKitDir, String... args) {
+        return GradleRunner.create()
+                .withGradleVersion(version)
+                .withProjectDir(projectDir)
+                .withTestKitDir(testKitDir)
+                .withArguments(args);
+    }
+
+    private static Result measure(String version, String scenario, GradleRunner runner) {
+        long start = System.nanoTime();
+        try {
+            runner.build();
+            return new Result(version, scenario, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            // Older Gradle versions and configuration cache incompatibilities shouldn't abort the whole run
+            return new Result(version, scenario, System.nanoTime() - start, e.getClass().getSimpleName() + ": " + firstLine(e.getMessage()));
+        }
+    }
+
+    private static String firstLine(String message) {
+        if (message == null)
+            return "";
+        int idx = message.indexOf('\n');
+        return idx == -1 ? message : message.substring(0, idx);
+    }
+
+    private static String required(String property) {
+        String ret = System.getProperty(property);
+        if (ret == null)
+            throw new IllegalArgumentException("Missing system property: " + property);
+        return ret;
+    }
+
+    private static void delete(File dir) throws IOException {
+        if (!dir.exists())
+            return;
+        Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static class Result {
+        private final String gradleVersion;
+        private final String scenario;
+        private final long nanos;
+        private final String failure;
+
+        private Result(String gradleVersion, String scenario, long nanos, String failure) {
+            this.gradleVersion = gradleVersion;
+            this.scenario = scenario;
+            this.nanos = nanos;
+            this.failure = failure;
+        }
+
+        private String toJson() {
+            return String.format(Locale.ENGLISH, "{\"gradleVersion\": \"%s\", \"scenario\": \"%s\", \"millis\": %d, \"failure\": %s}",
+                    gradleVersion, scenario, TimeUnit.NANOSECONDS.toMillis(nanos),
+                    failure == null ? "null" : '"' + failure.replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "  Gradle %-8s %-26s %8dms%s", gradleVersion, scenario, TimeUnit.NANOSECONDS.toMillis(nanos),
+                    failure == null ? "" : "  FAILED " + failure);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a standalone Gradle build that registers a {@link SyntheticRepository} through {@code GradleRepositoryAdapter}
+ * and depends on every artifact it generates, so nothing is fetched from the network.
+ */
+class SyntheticBuild {
+    private final int artifacts;
+    private final int size;
+    private final int depth;
+
+    SyntheticBuild(int artifacts, int size, int depth) {
+        this.artifacts = artifacts;
+        this.size = size;
+        this.depth = depth;
+    }
+
+    void write(File dir, List<File> classpath) throws IOException {
+        dir.mkdirs();
+        write(new File(dir, "settings.gradle"), "rootProject.name = 'artifactural-perf'\n");
+        write(new File(dir, "gradle.properties"), "org.gradle.jvmargs=-Xmx1g\n");
+
+        String cp = classpath.stream()
+                .map(f -> "'" + f.getAbsolutePath().replace('\\', '/') + "'")
+                .collect(Collectors.joining(", "));
+
+        write(new File(dir, "build.gradle"),
+            "buildscript {\n" +
+            "    dependencies {\n" +
+            "        classpath files(" + cp + ")\n" +
+            "    }\n" +
+            "}\n" +
+            "\n" +
+            "net.minecraftforge.artifactural.gradle.GradleRepositoryAdapter.add(repositories, 'synthetic', file('synthetic-repo'),\n" +
+            "    new net.minecraftforge.artifactural.perf.SyntheticRepository(" + size + ", " + depth + "))\n" +
+            "\n" +
+            "configurations {\n" +
+            "    synthetic\n" +
+            "}\n" +
+            "dependencies {\n" +
+            "    (0..<" + artifacts + ").each { synthetic \"synthetic:artifact${it}:1.0\" }\n" +
+            "}\n" +
+            "\n" +
+            "tasks.register('resolveSynthetic') {\n" +
+            "    def files = configurations.synthetic\n" +
+            "    inputs.files(files)\n" +
+            "    doLast {\n" +
+            "        println \"Resolved ${files.files.size()} synthetic artifacts\"\n" +
+            "    }\n" +
+            "}\n");
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticBuild(artifacts=" + artifacts + ", size=" + size + ", depth=" + depth + ")";
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.perf;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.api.repository.ArtifactProvider;
+import net.minecraftforge.artifactural.api.repository.Repository;
+import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.repository.ArtifactProviderBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Repository that generates {@code synthetic:artifactN:1.0} in memory, with a pom and a jar of a fixed size,
+ * passing the jar through a chain of pass-through transformers that each add to the metadata.
+ * Loaded by the generated build from {@link SyntheticBuild}.
+ */
+public class SyntheticRepository implements Repository {
+    public static final String GROUP = "synthetic";
+
+    private final int size;
+    private final List<ArtifactTransformer> transformers = new ArrayList<>();
+    private final ArtifactProvider<ArtifactIdentifier> provider;
+
+    public SyntheticRepository(int size, int depth) {
+        this.size = size;
+        for (int x = 0; x < depth; x++) {
+            String step = "step" + x;
+            transformers.add(ArtifactTransformer.of(artifact ->
+                    StreamableArtifact.ofStreamable(artifact.getIdentifier(), artifact.getType(), artifact::openStream)
+                            .withMetadata(artifact.getMetadata().with(step, GROUP))));
+        }
+        this.provider = ArtifactProviderBuilder.begin(ArtifactIdentifier.class)
+                .filter(ArtifactIdentifier.groupEquals(GROUP))
+                .provide(this::generate);
+    }
+
+    private Artifact generate(ArtifactIdentifier identifier) {
+        if (!GROUP.equals(identifier.getGroup()))
+            return Artifact.none();
+
+        if ("pom".equals(identifier.getExtension())) {
+            String pom = "<project><modelVersion>4.0.0</modelVersion><groupId>" + identifier.getGroup() + "</groupId><artifactId>" + identifier.getName() + "</artifactId><version>" + identifier.getVersion() + "</version></project>";
+            return StreamableArtifact.ofBytes(identifier, ArtifactType.OTHER, pom.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] data = new byte[size];
+        new Random(identifier.getName().hashCode()).nextBytes(data);
+        Artifact artifact = StreamableArtifact.ofBytes(identifier, ArtifactType.BINARY, data);
+        for (ArtifactTransformer transformer : transformers)
+            artifact = artifact.apply(transformer);
+        return artifact;
+    }
+
+    @Override
+    public Artifact getArtifact(ArtifactIdentifier identifier) {
+        return provider.getArtifact(identifier);
+    }
+}
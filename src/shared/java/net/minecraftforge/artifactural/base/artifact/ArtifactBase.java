@@ -24,7 +24,9 @@ import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
 import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
 import net.minecraftforge.artifactural.api.artifact.ArtifactType;
 import net.minecraftforge.artifactural.api.cache.ArtifactCache;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
 import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
 
 public abstract class ArtifactBase implements Artifact {
 
@@ -56,7 +58,16 @@ public abstract class ArtifactBase implements Artifact {
     @Override
     public Artifact apply(ArtifactTransformer transformer) {
         if (!transformer.appliesTo(this)) return this;
-        return transformer.transform(this);
+        Instrumentation metrics = Metrics.get();
+        if (!metrics.isEnabled()) return transformer.transform(this);
+
+        Instrumentation.Timer timer = metrics.timer("transform." + transformer.getClass().getName());
+        long start = timer.start();
+        try {
+            return transformer.transform(this);
+        } finally {
+            timer.stop(start);
+        }
     }
 
     @Override
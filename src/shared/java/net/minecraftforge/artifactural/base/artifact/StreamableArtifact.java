@@ -25,6 +25,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 
 import net.minecraftforge.artifactural.api.artifact.Artifact;
 import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
@@ -32,6 +33,8 @@ import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
 import net.minecraftforge.artifactural.api.artifact.ArtifactType;
 import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
 import net.minecraftforge.artifactural.api.artifact.Streamable;
+import net.minecraftforge.artifactural.base.util.BufferPool;
+import net.minecraftforge.artifactural.base.util.ByteBufferInputStream;
 
 public class StreamableArtifact extends ArtifactBase {
 
@@ -47,6 +50,15 @@ public class StreamableArtifact extends ArtifactBase {
         return new StreamableArtifact(identifier, type, () -> new ByteArrayInputStream(bytes));
     }
 
+    /**
+     * Serves the remaining bytes of the buffer without copying them, the buffer itself is never modified.
+     * Large generated artifacts can keep their data out of the heap with a buffer from {@link BufferPool#allocate(int)}.
+     */
+    public static Artifact ofByteBuffer(ArtifactIdentifier identifier, ArtifactType type, ByteBuffer buffer) {
+        ByteBuffer data = buffer.asReadOnlyBuffer();
+        return new StreamableArtifact(identifier, type, () -> new ByteBufferInputStream(data.duplicate()));
+    }
+
     public static Artifact ofStreamable(ArtifactIdentifier identifier, ArtifactType type, Streamable streamable) {
         return new StreamableArtifact(identifier, type, streamable);
     }
@@ -0,0 +1,425 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.artifact;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
+import net.minecraftforge.artifactural.api.cache.ArtifactCache;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+import net.minecraftforge.artifactural.base.cache.ArtifactCacheBase;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.util.ChunkedDownload;
+import net.minecraftforge.artifactural.base.util.HashFunction;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An artifact downloaded from a URL, which unlike {@link StreamableArtifact#ofURL(ArtifactIdentifier, ArtifactType, URL)}
+ * checks presence with a HEAD request and revalidates cached copies instead of downloading them again.
+ *
+ * <p>Once cached, the ETag and Last-Modified headers of the response are stored next to the cached file.
+ * The first open of every later instance sends them back as {@code If-None-Match} and {@code If-Modified-Since} in a HEAD request,
+ * and a {@code 304} is served from the cached file, as is every further open of the same instance.
+ * A file the server sent neither header for is used as is, as there is nothing to revalidate it against, and so is the cached file
+ * if the server can't be reached. Large files are fetched with a {@link ChunkedDownload}.
+ * Downloads are stored through the cache, so they get its integrity records and compression like any other entry.</p>
+ *
+ * <p>With a known hash, for example from a {@code .sha1} file next to it, every download is checked against it and fails on a mismatch,
+ * before anything is stored.</p>
+ */
+public class UrlArtifact extends ArtifactBase {
+    private static final int TIMEOUT = 30_000;
+    private static final long CHUNKED_THRESHOLD = 32 << 20;
+
+    public static Artifact of(ArtifactIdentifier identifier, ArtifactType type, URL url) {
+        return new UrlArtifact(identifier, type, new SimpleArtifactMetadata(), url, null, null);
+    }
+
+    /**
+     * @param function Hash function of {@code hash}
+     * @param hash     Hash the downloaded file must have
+     */
+    public static Artifact of(ArtifactIdentifier identifier, ArtifactType type, URL url, HashFunction function, String hash) {
+        return new UrlArtifact(identifier, type, new SimpleArtifactMetadata(), url, function, hash);
+    }
+
+    final URL url;
+    final HashFunction hashFunction;
+    final String hash;
+
+    private UrlArtifact(ArtifactIdentifier identifier, ArtifactType type, ArtifactMetadata metadata, URL url, HashFunction hashFunction, String hash) {
+        super(identifier, type, metadata);
+        this.url = url;
+        this.hashFunction = hashFunction;
+        this.hash = hash;
+    }
+
+    @Override
+    public Artifact withMetadata(ArtifactMetadata metadata) {
+        return new UrlArtifact(getIdentifier(), getType(), metadata, url, hashFunction, hash);
+    }
+
+    /**
+     * Stores the artifact in the cache, but revalidates the stored copy with the server before it is used.
+     */
+    @Override
+    public Artifact.Cached cache(ArtifactCache cache) {
+        try {
+            return new CachedUrlArtifact(getIdentifier(), getType(), getMetadata(), url, hashFunction, hash, cache, cache.store(this));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isPresent() {
+        try {
+            URLConnection connection = connect();
+            if (!(connection instanceof HttpURLConnection)) {
+                connection.getInputStream().close();
+                return true;
+            }
+            HttpURLConnection http = (HttpURLConnection) connection;
+            http.setRequestMethod("HEAD");
+            int code = http.getResponseCode();
+            http.disconnect();
+            return code >= 200 && code < 300;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream openStream() throws IOException, MissingArtifactException {
+        URLConnection connection = connect();
+        if (connection instanceof HttpURLConnection)
+            checkFound((HttpURLConnection) connection);
+        return verified(connection.getInputStream());
+    }
+
+    InputStream verified(InputStream stream) {
+        return hashFunction == null ? stream : new VerifyingInputStream(stream, hashFunction.create(), hash, url);
+    }
+
+    URLConnection connect() throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    int checkFound(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+            connection.disconnect();
+            throw new MissingArtifactException(getIdentifier());
+        }
+        if (code >= 400) {
+            connection.disconnect();
+            throw new IOException("Server returned " + code + " for " + url);
+        }
+        return code;
+    }
+
+    @Override
+    public String toString() {
+        return "UrlArtifact(" + url + ")";
+    }
+
+    private static class CachedUrlArtifact extends UrlArtifact implements Artifact.Cached {
+        private final ArtifactCache cache;
+        private final Artifact.Cached stored;
+        private final File file;
+        private final File validators;
+        private boolean revalidated;
+
+        private CachedUrlArtifact(ArtifactIdentifier identifier, ArtifactType type, ArtifactMetadata metadata, URL url, HashFunction hashFunction, String hash,
+                ArtifactCache cache, Artifact.Cached stored) throws IOException {
+            super(identifier, type, metadata, url, hashFunction, hash);
+            this.cache = cache;
+            this.stored = stored;
+            this.file = stored.getFileLocation();
+            this.validators = new File(file.getPath() + ".validators");
+        }
+
+        @Override
+        public Artifact withMetadata(ArtifactMetadata metadata) {
+            return new UrlArtifact(getIdentifier(), getType(), metadata, url, hashFunction, hash);
+        }
+
+        @Override
+        public Artifact.Cached cache(ArtifactCache cache) {
+            return this;
+        }
+
+        @Override
+        public boolean isPresent() {
+            return hasCopy() || super.isPresent();
+        }
+
+        @Override
+        public InputStream openStream() throws IOException, MissingArtifactException {
+            revalidate();
+            return stored.openStream();
+        }
+
+        private boolean hasCopy() {
+            return file.exists() || ArtifactCacheBase.packed(file).exists();
+        }
+
+        /**
+         * Checks the cached copy with the server once per instance, later calls use the copy as it is.
+         */
+        private synchronized void revalidate() throws IOException {
+            boolean cached = hasCopy();
+            if (revalidated && cached)
+                return;
+            Instrumentation metrics = Metrics.get();
+            Properties props = cached ? readValidators() : new Properties();
+            if (cached && props.getProperty("url") != null && props.getProperty("etag") == null && props.getProperty("last-modified") == null) {
+                metrics.counter("url.unvalidated").increment();
+                revalidated = true;
+                return;
+            }
+
+            HttpURLConnection head = null;
+            try {
+                URLConnection connection = connect();
+                if (connection instanceof HttpURLConnection) {
+                    // Only the headers are needed, to tell if the copy is current and how to download it if not
+                    head = (HttpURLConnection) connection;
+                    head.setRequestMethod("HEAD");
+                    if (props.getProperty("etag") != null)
+                        head.setRequestProperty("If-None-Match", props.getProperty("etag"));
+                    if (props.getProperty("last-modified") != null)
+                        head.setRequestProperty("If-Modified-Since", props.getProperty("last-modified"));
+                    int code = checkFound(head);
+                    head.disconnect();
+                    if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        metrics.counter("url.notModified").increment();
+                        revalidated = true;
+                        return;
+                    }
+                } else if (cached) {
+                    // Nothing to revalidate against, so keep what we have
+                    revalidated = true;
+                    return;
+                }
+            } catch (IOException e) {
+                if (!cached)
+                    throw e;
+                metrics.counter("url.offline").increment();
+                revalidated = true;
+                return;
+            }
+
+            metrics.counter("url.downloaded").increment();
+            // The stale copy is moved aside, or the cache would keep serving it, and put back if the download fails
+            File[] copies = { file, ArtifactCacheBase.packed(file) };
+            for (File copy : copies) {
+                if (copy.exists())
+                    Files.move(copy.toPath(), stale(copy).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            HttpURLConnection response;
+            try {
+                response = download(head);
+            } catch (IOException | RuntimeException e) {
+                for (File copy : copies) {
+                    if (stale(copy).exists() && !hasCopy())
+                        Files.move(stale(copy).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                throw e;
+            }
+            for (File copy : copies)
+                Files.deleteIfExists(stale(copy).toPath());
+            writeValidators(response);
+            revalidated = true;
+        }
+
+        private static File stale(File copy) {
+            return new File(copy.getPath() + ".stale");
+        }
+
+        /**
+         * @param head Response to the HEAD request, or null if the URL isn't HTTP
+         * @return The response whose headers describe what was stored, or null if the URL isn't HTTP
+         */
+        private HttpURLConnection download(HttpURLConnection head) throws IOException {
+            if (head != null && head.getContentLengthLong() >= CHUNKED_THRESHOLD && "bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"))) {
+                String validator = head.getHeaderField("ETag") != null ? head.getHeaderField("ETag") : head.getHeaderField("Last-Modified");
+                File download = new File(file.getPath() + ".download");
+                ChunkedDownload chunked = ChunkedDownload.of(url, download);
+                if (hashFunction != null)
+                    chunked.verify(hashFunction, hash);
+                chunked.run(head.getContentLengthLong(), validator, true);
+                store(Files.newInputStream(download.toPath(), StandardOpenOption.DELETE_ON_CLOSE));
+                return head;
+            }
+            URLConnection connection = connect();
+            HttpURLConnection http = connection instanceof HttpURLConnection ? (HttpURLConnection) connection : null;
+            if (http != null)
+                checkFound(http);
+            store(verified(connection.getInputStream()));
+            return http;
+        }
+
+        /**
+         * Has the cache store the body of a response, the first stream it opens is the body and any later one a new request.
+         */
+        private void store(InputStream body) throws IOException {
+            AtomicReference<InputStream> first = new AtomicReference<>(body);
+            Artifact fresh = StreamableArtifact.ofStreamable(getIdentifier(), getType(), () -> {
+                InputStream ret = first.getAndSet(null);
+                return ret != null ? ret : super.openStream();
+            }).withMetadata(getMetadata());
+            try {
+                cache.store(fresh).openStream().close();
+            } finally {
+                InputStream unused = first.getAndSet(null);
+                if (unused != null)
+                    unused.close();
+            }
+        }
+
+        private Properties readValidators() throws IOException {
+            Properties props = new Properties();
+            if (validators.exists()) {
+                try (InputStream is = new FileInputStream(validators)) {
+                    props.load(is);
+                }
+                // Validators of another URL mean nothing here
+                if (!url.toString().equals(props.getProperty("url")))
+                    props.clear();
+            }
+            return props;
+        }
+
+        private void writeValidators(HttpURLConnection http) throws IOException {
+            // Written even without validators, so we know the server sent none and don't download the file again every time
+            Properties props = new Properties();
+            props.setProperty("url", url.toString());
+            String etag = http == null ? null : http.getHeaderField("ETag");
+            String modified = http == null ? null : http.getHeaderField("Last-Modified");
+            if (etag != null)
+                props.setProperty("etag", etag);
+            if (modified != null)
+                props.setProperty("last-modified", modified);
+            validators.getParentFile().mkdirs();
+            File tmp = File.createTempFile(validators.getName(), ".tmp", validators.getParentFile());
+            try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+                props.store(os, null);
+            }
+            Files.move(tmp.toPath(), validators.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public File asFile() throws IOException, MissingArtifactException {
+            revalidate();
+            return stored.asFile();
+        }
+
+        @Override
+        public File getFileLocation() {
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return "UrlArtifact(" + url + ", " + file + ")";
+        }
+    }
+
+    /**
+     * Hashes a stream as it is read, and fails instead of reporting its end if the hash doesn't match.
+     */
+    private static class VerifyingInputStream extends FilterInputStream {
+        private final HashFunction.Instance digest;
+        private final String expected;
+        private final URL url;
+        private boolean checked;
+
+        private VerifyingInputStream(InputStream in, HashFunction.Instance digest, String expected, URL url) {
+            super(in);
+            this.digest = digest;
+            this.expected = expected;
+            this.url = url;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1)
+                check();
+            else
+                digest.update((byte) b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1)
+                check();
+            else
+                digest.update(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would be missing from the hash, so read them
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int read = n <= 0 ? 0 : read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void check() throws IOException {
+            if (checked)
+                return;
+            checked = true;
+            String actual = digest.finish();
+            if (!actual.equalsIgnoreCase(expected))
+                throw new IOException("Hash mismatch for " + url + ", expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.artifact;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
+import net.minecraftforge.artifactural.base.util.ZipIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A single entry of a zip artifact, exposed as its own artifact.
+ * The entry is found through the central directory of {@link Artifact#openChannel()}, and only its data is read.
+ * The metadata is the archive's metadata plus the entry name, so cached copies are keyed on both.
+ */
+public class ZipEntryArtifact extends ArtifactBase {
+
+    public static Artifact of(Artifact archive, String entry, ArtifactIdentifier identifier, ArtifactType type) {
+        return new ZipEntryArtifact(identifier, type, archive.getMetadata().with("zip_entry", entry), archive, entry);
+    }
+
+    private final Artifact archive;
+    private final String entry;
+    private volatile Located located;
+
+    private ZipEntryArtifact(ArtifactIdentifier identifier, ArtifactType type, ArtifactMetadata metadata, Artifact archive, String entry) {
+        super(identifier, type, metadata);
+        this.archive = archive;
+        this.entry = entry;
+    }
+
+    @Override
+    public Artifact withMetadata(ArtifactMetadata metadata) {
+        return new ZipEntryArtifact(getIdentifier(), getType(), metadata, archive, entry);
+    }
+
+    @Override
+    public boolean isPresent() {
+        if (!archive.isPresent())
+            return false;
+        try (SeekableByteChannel channel = archive.openChannel()) {
+            return locate(channel) != null;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream openStream() throws IOException, MissingArtifactException {
+        SeekableByteChannel channel = archive.openChannel();
+        try {
+            ZipIndex.Entry zipEntry = locate(channel);
+            if (zipEntry == null)
+                throw new MissingArtifactException(getIdentifier());
+            if (zipEntry.isEncrypted())
+                throw new ZipException("Encrypted entries are not supported: " + entry + " in " + archive);
+
+            InputStream raw = ZipIndex.openRaw(channel, zipEntry);
+            switch (zipEntry.getMethod()) {
+                case ZipIndex.STORED:
+                    return new ClosingInputStream(raw, channel, null);
+                case ZipIndex.DEFLATED:
+                    Inflater inflater = new Inflater(true);
+                    // Raw inflate may need a trailing dummy byte to finish, same as ZipFile does
+                    InputStream padded = new SequenceInputStream(raw, new ByteArrayInputStream(new byte[1]));
+                    return new ClosingInputStream(new InflaterInputStream(padded, inflater, 8192), channel, inflater);
+                default:
+                    throw new ZipException("Unsupported compression method " + zipEntry.getMethod() + " for " + entry + " in " + archive);
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * The entry is only looked up again when the archive changed, which is detected by its size and, for cached archives, the file's modification time.
+     */
+    private ZipIndex.Entry locate(SeekableByteChannel channel) throws IOException {
+        long size = channel.size();
+        long modified = archive instanceof Artifact.Cached ? ((Artifact.Cached) archive).getFileLocation().lastModified() : 0;
+        Located ret = located;
+        if (ret == null || ret.size != size || ret.modified != modified) {
+            ret = new Located(size, modified, ZipIndex.read(channel).get(entry));
+            located = ret;
+        }
+        return ret.entry;
+    }
+
+    @Override
+    public String toString() {
+        return "ZipEntryArtifact(" + archive + "!/" + entry + ")";
+    }
+
+    private static class Located {
+        private final long size;
+        private final long modified;
+        private final ZipIndex.Entry entry;
+
+        private Located(long size, long modified, ZipIndex.Entry entry) {
+            this.size = size;
+            this.modified = modified;
+            this.entry = entry;
+        }
+    }
+
+    private static class ClosingInputStream extends FilterInputStream {
+        private final SeekableByteChannel channel;
+        private final Inflater inflater;
+
+        private ClosingInputStream(InputStream in, SeekableByteChannel channel, Inflater inflater) {
+            super(in);
+            this.channel = channel;
+            this.inflater = inflater;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (inflater != null)
+                    inflater.end();
+                channel.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.util.HashFunction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link LocatedArtifactCache} root that also serves entries straight out of a {@link CacheArchive} exported from an earlier build.
+ * Archived entries are streamed from the archive without unpacking it, and only written into the root once a file is needed through
+ * {@link Artifact.Cached#asFile()}. Anything not in the archive is cached in the root as usual.
+ *
+ * <p>Archived entries are checked against the integrity records exported with them, following this cache's {@link Verification},
+ * and ones that fail or have no record are computed again. Entries the exporting cache kept deflated are inflated when streamed.</p>
+ */
+public class ArchivedArtifactCache extends ArtifactCacheBase {
+    private final File root;
+    private final LocatedArtifactCache located;
+    private final CacheArchive archive;
+    // Archive entries already checked, the archive doesn't change while it is open
+    private final Set<String> trusted = ConcurrentHashMap.newKeySet();
+
+    public ArchivedArtifactCache(File root, CacheArchive archive) {
+        this.root = root;
+        this.located = new LocatedArtifactCache(root);
+        this.archive = archive;
+    }
+
+    @Override
+    public Artifact.Cached store(Artifact artifact) {
+        File path = located.getPath(artifact);
+        located.touch(path);
+        String name = root.toPath().relativize(path.toPath()).toString().replace(File.separatorChar, '/');
+        String entry = archive.contains(name) ? name : archive.contains(name + PACKED) ? name + PACKED : null;
+        try {
+            if (path.exists() || entry == null || !isTrusted(entry))
+                return doStore(path, artifact);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Metrics.get().counter("cache.archiveHit").increment();
+        Artifact archived = StreamableArtifact.ofStreamable(artifact.getIdentifier(), artifact.getType(), () -> {
+            if (path.exists())
+                return new FileInputStream(path);
+            InputStream is = archive.open(entry);
+            if (is == null)
+                return artifact.openStream();
+            return entry.endsWith(PACKED) ? inflate(is) : is;
+        }).withMetadata(artifact.getMetadata());
+        return wrap(archived, path, () -> ensure(path, archived));
+    }
+
+    @Override
+    public void setVerification(Verification verification) {
+        super.setVerification(verification);
+        trusted.clear();
+    }
+
+    private boolean isTrusted(String entry) throws IOException {
+        Verification verification = getVerification();
+        if (!verification.checkSize() || trusted.contains(entry))
+            return true;
+        boolean valid = matchesRecord(entry, verification);
+        if (!valid) {
+            Metrics.get().counter("cache.archiveCorrupt").increment();
+            return false;
+        }
+        trusted.add(entry);
+        return true;
+    }
+
+    private boolean matchesRecord(String entry, Verification verification) throws IOException {
+        String record;
+        try (InputStream is = archive.open(entry + RECORD)) {
+            if (is == null)
+                return false;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[256];
+            int read;
+            while ((read = is.read(buf)) != -1)
+                out.write(buf, 0, read);
+            record = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        String[] parts = record.trim().split(" ");
+        if (parts.length != 2 || !parts[0].equals(Long.toString(archive.getSize(entry))))
+            return false;
+        if (!verification.checkHash())
+            return true;
+        try (InputStream is = archive.open(entry)) {
+            return HashFunction.SHA1.hash(is).equals(parts[1]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedArtifactCache(" + root + ", " + archive + ")";
+    }
+
+}
@@ -25,46 +25,286 @@ import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
 import net.minecraftforge.artifactural.api.artifact.ArtifactType;
 import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
 import net.minecraftforge.artifactural.api.cache.ArtifactCache;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
 import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
 import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.util.BufferPool;
+import net.minecraftforge.artifactural.base.util.HashFunction;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public abstract class ArtifactCacheBase implements ArtifactCache {
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "zip", "jar", "war", "aar", "gz", "tgz", "xz", "bz2", "zst", "7z", "png", "jpg", "jpeg", "lzma"));
+
+    private static final int MAX_VERIFIED = 10_000;
+    static final String PACKED = ".deflate";
+    static final String RECORD = ".integrity";
+
+    private volatile Verification verification = Verification.size();
+    // Entries already checked, keyed with their size and modification time so a rewritten file is checked again
+    private final Set<String> verified = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_VERIFIED;
+        }
+    }));
+    private volatile boolean compressed;
+
+    public Verification getVerification() {
+        return verification;
+    }
+
+    /**
+     * Sets how cached files are checked before they are used, defaults to {@link Verification#size()}.
+     */
+    public void setVerification(Verification verification) {
+        this.verification = verification;
+        verified.clear();
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Stores new entries deflated on disk, except those that already are compressed, like zips and jars.
+     * They are inflated again when streamed, and {@link Artifact.Cached#asFile()} replaces them with a plain file when one is needed.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
 
     Artifact.Cached doStore(File path, Artifact artifact) {
+        // The plain file is made from the packed copy if there is one, rather than from the source again
+        Artifact plain = StreamableArtifact.ofStreamable(artifact.getIdentifier(), artifact.getType(), () -> {
+            File packed = packed(path);
+            return packed.exists() && isValid(packed) ? inflate(packed) : artifact.openStream();
+        }).withMetadata(artifact.getMetadata());
         return wrap(
                 StreamableArtifact.ofStreamable(
                         artifact.getIdentifier(),
                         artifact.getType(),
                         () -> stream(path, artifact)
                 ).withMetadata(artifact.getMetadata()),
-                path
+                path,
+                () -> {
+                    if (!isHit(path)) {
+                        write(path, plain.openStream(), false);
+                        Files.deleteIfExists(packed(path).toPath());
+                        Files.deleteIfExists(record(packed(path)).toPath());
+                    }
+                }
         );
     }
 
     private InputStream stream(File path, Artifact artifact) throws IOException {
-        if (!path.exists()) {
-            path.getParentFile().mkdirs();
-            path.createNewFile();
-            FileOutputStream fos = new FileOutputStream(path);
-            InputStream is = artifact.openStream();
-            int read;
-            byte[] bytes = new byte[256];
-            while ((read = is.read(bytes)) > 0) {
-                fos.write(bytes, 0, read);
-            }
-            fos.close();
-            is.close();
-        }
+        if (compressed && !path.exists() && !COMPRESSED_EXTENSIONS.contains(artifact.getIdentifier().getExtension()))
+            return streamPacked(path, artifact);
+        ensure(path, artifact);
         return new FileInputStream(path);
     }
 
+    private InputStream streamPacked(File path, Artifact artifact) throws IOException {
+        File packed = packed(path);
+        if (isHit(packed))
+            return inflate(packed);
+
+        PushbackInputStream in = new PushbackInputStream(artifact.openStream(), 4);
+        byte[] magic = new byte[4];
+        int read = 0;
+        int count;
+        while (read < magic.length && (count = in.read(magic, read, magic.length - read)) != -1)
+            read += count;
+        in.unread(magic, 0, read);
+        if (isCompressed(magic, read)) {
+            write(path, in, false);
+            return new FileInputStream(path);
+        }
+        write(packed, in, true);
+        return inflate(packed);
+    }
+
+    void ensure(File path, Artifact artifact) throws IOException {
+        if (!isHit(path))
+            write(path, artifact.openStream(), false);
+    }
+
+    private boolean isHit(File path) throws IOException {
+        Instrumentation metrics = Metrics.get();
+        if (path.exists()) {
+            if (isValid(path)) {
+                metrics.counter("cache.hit").increment();
+                return true;
+            }
+            metrics.counter("cache.corrupt").increment();
+        } else {
+            metrics.counter("cache.miss").increment();
+        }
+        return false;
+    }
+
+    private void write(File path, InputStream input, boolean deflate) throws IOException {
+        Instrumentation metrics = Metrics.get();
+        Instrumentation.Timer timer = metrics.timer("cache.materialize");
+        long start = timer.start();
+        long total;
+        try {
+            total = copy(path, input, deflate);
+        } finally {
+            timer.stop(start);
+        }
+        metrics.counter(deflate ? "cache.bytesPacked" : "cache.bytesCopied").add(total);
+        metrics.histogram("cache.artifactSize").record(total);
+    }
+
+    private long copy(File path, InputStream input, boolean deflate) throws IOException {
+        path.getParentFile().mkdirs();
+        // Write next to the target and move it in place, so an interrupted copy never leaves a truncated entry behind
+        File tmp = File.createTempFile(path.getName(), ".tmp", path.getParentFile());
+        HashFunction.Instance hash = HashFunction.SHA1.create();
+        long total = 0;
+        try {
+            // The source is a stream, so the data lands in a heap array first anyway, hash and write it from there
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 InputStream in = deflate ? new DeflatingInputStream(input) : input;
+                 BufferPool.Lease lease = BufferPool.shared().leaseHeap()) {
+                ByteBuffer buffer = lease.buffer();
+                byte[] data = buffer.array();
+                int read;
+                while ((read = in.read(data)) != -1) {
+                    hash.update(data, 0, read);
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining())
+                        total += out.write(buffer);
+                }
+            }
+            // The record goes first, an entry without its record would be written again
+            Files.write(record(path).toPath(), (total + " " + hash.finish()).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), path.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        return total;
+    }
+
+    /**
+     * Where an entry is kept while it is stored deflated, see {@link #setCompressed(boolean)}.
+     */
+    public static File packed(File path) {
+        return new File(path.getPath() + PACKED);
+    }
+
+    private static InputStream inflate(File packed) throws IOException {
+        return inflate(new FileInputStream(packed));
+    }
+
+    /**
+     * Reads the content of a packed entry from its raw deflate data.
+     */
+    static InputStream inflate(InputStream packed) {
+        Inflater inflater = new Inflater(true);
+        // Raw inflate may need a trailing dummy byte to finish
+        InputStream padded = new SequenceInputStream(packed, new ByteArrayInputStream(new byte[1]));
+        return new InflaterInputStream(padded, inflater, 1 << 16) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static boolean isCompressed(byte[] magic, int length) {
+        if (length >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4)
+            return true;
+        return length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B;
+    }
+
+    boolean isValid(File path) throws IOException {
+        return isValid(path, true);
+    }
+
+    /**
+     * @param adopt Whether a file without a record is recorded as it is now and trusted, rather than rejected.
+     *              Caches written before records existed are migrated this way instead of being computed again.
+     */
+    boolean isValid(File path, boolean adopt) throws IOException {
+        Verification verification = this.verification;
+        if (!verification.checkSize())
+            return true;
+        String key = path.getPath() + '|' + path.length() + '|' + path.lastModified();
+        if (verified.contains(key))
+            return true;
+
+        File record = record(path);
+        if (!record.exists()) {
+            if (!adopt || path.length() == 0)
+                return false;
+            writeRecord(path);
+            Metrics.get().counter("cache.migrated").increment();
+            verified.add(key);
+            return true;
+        }
+        String[] parts = new String(Files.readAllBytes(record.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+        if (parts.length != 2 || !parts[0].equals(Long.toString(path.length())))
+            return false;
+        if (verification.checkHash() && !HashFunction.SHA1.hash(path).equals(parts[1]))
+            return false;
+        verified.add(key);
+        return true;
+    }
+
+    /**
+     * The size and SHA-1 of a cached file, recorded next to it when it is written.
+     */
+    static File record(File path) {
+        return new File(path.getPath() + RECORD);
+    }
+
+    /**
+     * Records a file that was put in place without {@link #write(File, InputStream, boolean)}, as it is now.
+     */
+    static void writeRecord(File path) throws IOException {
+        long length = path.length();
+        Files.write(record(path).toPath(), (length + " " + HashFunction.SHA1.hash(path)).getBytes(StandardCharsets.UTF_8));
+    }
+
     public static Artifact.Cached wrap(Artifact artifact, File file) {
+        return wrap(artifact, file, () -> {
+            if (!file.exists()) {
+                artifact.openStream().close();
+            }
+        });
+    }
+
+    static Artifact.Cached wrap(Artifact artifact, File file, Materializer materializer) {
         return new Artifact.Cached() {
 
             @Override
@@ -109,9 +349,7 @@ public abstract class ArtifactCacheBase implements ArtifactCache {
 
             @Override
             public File asFile() throws IOException, MissingArtifactException {
-                if(!file.exists()) {
-                    artifact.openStream().close();
-                }
+                materializer.materialize();
                 return file;
             }
 
@@ -126,4 +364,34 @@ public abstract class ArtifactCacheBase implements ArtifactCache {
         };
     }
 
+    /**
+     * Deflates another stream as it is read.
+     */
+    private static class DeflatingInputStream extends DeflaterInputStream {
+        private final Deflater deflater;
+
+        private DeflatingInputStream(InputStream in) {
+            this(in, new Deflater(Deflater.BEST_SPEED, true));
+        }
+
+        private DeflatingInputStream(InputStream in, Deflater deflater) {
+            super(in, deflater, 1 << 16);
+            this.deflater = deflater;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Materializer {
+        void materialize() throws IOException;
+    }
+
 }
@@ -0,0 +1,335 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.base.util.ByteBufferInputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A whole cache root packed into one file, so CI can save and restore it without creating thousands of small files.
+ *
+ * <p>The file is the entry data one after the other, then an index of all entries, then a fixed size footer pointing at the index.
+ * Opening an archive only reads the index, entries are mapped and read when asked for.
+ * Entries are stored as raw deflate, except zips, jars and gzip files, which are stored as is.</p>
+ */
+public class CacheArchive implements Closeable {
+    private static final long MAGIC = 0x4152544341434845L; // ARTCACHE
+    private static final int VERSION = 1;
+    private static final int FOOTER_SIZE = 32;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 1;
+
+    /**
+     * Packs every file under {@code root} into {@code archive}, in path order so equal trees produce equal archives.
+     * Unfinished downloads, temporary files and the bookkeeping of {@link CacheReferences} are left out.
+     */
+    public static void export(File root, File archive) throws IOException {
+        Path base = root.toPath();
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(base)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(p -> !isTemporary(p.getFileName().toString()))
+                    .filter(p -> !isBookkeeping(base.relativize(p).getName(0).toString()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        archive.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = File.createTempFile(archive.getName(), ".tmp", archive.getAbsoluteFile().getParentFile());
+        try {
+            List<Entry> index = new ArrayList<>();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath()), 1 << 16))) {
+                long offset = 0;
+                byte[] buf = new byte[1 << 16];
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+                try {
+                    for (Path file : files) {
+                        String name = base.relativize(file).toString().replace(File.separatorChar, '/');
+                        // The index stores name lengths in two bytes
+                        if (name.getBytes(StandardCharsets.UTF_8).length > 0xFFFF)
+                            throw new IOException("Path too long for a cache archive: " + file);
+                        long size = Files.size(file);
+                        int method = isCompressed(file) ? STORED : DEFLATED;
+                        CountingOutputStream counter = new CountingOutputStream(out);
+                        deflater.reset();
+                        OutputStream target = method == STORED ? counter : new DeflaterOutputStream(counter, deflater, 1 << 16);
+                        try (InputStream is = Files.newInputStream(file)) {
+                            int read;
+                            while ((read = is.read(buf)) != -1)
+                                target.write(buf, 0, read);
+                        }
+                        if (target instanceof DeflaterOutputStream)
+                            ((DeflaterOutputStream) target).finish();
+                        index.add(new Entry(name, method, offset, counter.count, size));
+                        offset += counter.count;
+                    }
+                } finally {
+                    deflater.end();
+                }
+
+                int indexLength = 0;
+                for (Entry entry : index) {
+                    byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(name.length);
+                    out.write(name);
+                    out.writeByte(entry.method);
+                    out.writeLong(entry.offset);
+                    out.writeLong(entry.storedLength);
+                    out.writeLong(entry.size);
+                    indexLength += 2 + name.length + 1 + 24;
+                }
+                out.writeLong(offset);
+                out.writeInt(indexLength);
+                out.writeInt(index.size());
+                out.writeInt(VERSION);
+                out.writeInt(0);
+                out.writeLong(MAGIC);
+            }
+            Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private static boolean isTemporary(String name) {
+        return name.endsWith(".tmp") || name.endsWith(".part") || name.endsWith(".part.state");
+    }
+
+    private static boolean isBookkeeping(String top) {
+        return top.equals(CacheReferences.REFERENCES) || top.equals(CacheReferences.TRASH);
+    }
+
+    /**
+     * Zips, jars and gzip files gain nothing from another round of deflate.
+     */
+    private static boolean isCompressed(Path file) throws IOException {
+        byte[] magic = new byte[4];
+        int read;
+        try (InputStream is = Files.newInputStream(file)) {
+            read = is.read(magic);
+        }
+        if (read >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4)
+            return true;
+        return read >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B;
+    }
+
+    public static CacheArchive open(File archive) throws IOException {
+        FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE)
+                throw new IOException("Not a cache archive: " + archive);
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong(0);
+            int indexLength = footer.getInt(8);
+            int count = footer.getInt(12);
+            int version = footer.getInt(16);
+            if (footer.getLong(24) != MAGIC)
+                throw new IOException("Not a cache archive: " + archive);
+            if (version != VERSION)
+                throw new IOException("Unsupported cache archive version " + version + ": " + archive);
+
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexLength);
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int x = 0; x < count; x++) {
+                byte[] name = new byte[index.getShort() & 0xFFFF];
+                index.get(name);
+                int method = index.get();
+                long offset = index.getLong();
+                long stored = index.getLong();
+                long length = index.getLong();
+                Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), method, offset, stored, length);
+                entries.put(entry.name, entry);
+            }
+            return new CacheArchive(archive, channel, Collections.unmodifiableMap(entries));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    private CacheArchive(File file, FileChannel channel, Map<String, Entry> entries) {
+        this.file = file;
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    /**
+     * @param name Path relative to the exported root, with {@code /} separators
+     */
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    public List<String> getNames() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * @return Uncompressed size of the entry, or -1 if there is none with that name
+     */
+    public long getSize(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? -1 : entry.size;
+    }
+
+    /**
+     * Opens an entry, mapping only its part of the archive.
+     * @return The entry's content, or null if there is none with that name
+     */
+    public InputStream open(String name) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null)
+            return null;
+        if (entry.storedLength > Integer.MAX_VALUE)
+            throw new IOException("Entry too large to map: " + name);
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.storedLength);
+        InputStream raw = new ByteBufferInputStream(data);
+        if (entry.method == STORED)
+            return raw;
+        Inflater inflater = new Inflater(true);
+        // Raw inflate may need a trailing dummy byte to finish
+        return new InflaterInputStream(new SequenceInputStream(raw, new ByteArrayInputStream(new byte[1])), inflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+
+    /**
+     * Unpacks every entry into {@code root}, leaving files that already exist alone.
+     * Fails on entries that would end up outside of {@code root}, before anything is written.
+     */
+    public void extract(File root) throws IOException {
+        File base = root.getCanonicalFile();
+        Map<String, File> targets = new LinkedHashMap<>();
+        for (String name : entries.keySet()) {
+            File target = new File(base, name).getCanonicalFile();
+            if (!target.toPath().startsWith(base.toPath()) || target.equals(base))
+                throw new IOException("Entry " + name + " of " + file + " is outside of " + root);
+            targets.put(name, target);
+        }
+
+        for (Map.Entry<String, File> entry : targets.entrySet()) {
+            String name = entry.getKey();
+            File target = entry.getValue();
+            if (target.exists())
+                continue;
+            target.getParentFile().mkdirs();
+            File tmp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+            try {
+                try (InputStream is = open(name); OutputStream os = Files.newOutputStream(tmp.toPath())) {
+                    byte[] buf = new byte[1 << 16];
+                    int read;
+                    while ((read = is.read(buf)) != -1)
+                        os.write(buf, 0, read);
+                }
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheArchive(" + file + ", " + entries.size() + " entries)";
+    }
+
+    private static class Entry {
+        private final String name;
+        private final int method;
+        private final long offset;
+        private final long storedLength;
+        private final long size;
+
+        private Entry(String name, int method, long offset, long storedLength, long size) {
+            this.name = name;
+            this.method = method;
+            this.offset = offset;
+            this.storedLength = storedLength;
+            this.size = size;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // The archive stream stays open for the next entry
+        }
+    }
+}
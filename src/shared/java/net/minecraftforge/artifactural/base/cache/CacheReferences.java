@@ -0,0 +1,248 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Records which {@code [group]/[name]/[meta_hash]} variants of a {@link LocatedArtifactCache} a build used,
+ * so variants left behind by old transformer configurations can be removed with {@link #collectGarbage(File, int, long, TimeUnit)}.
+ *
+ * <p>There is one tracker per cache root and build, shared by every cache on that root. It appends each variant the first time it is used
+ * to the build's file under {@code .references} in the cache root, and keeps the file's modification time current while the build uses the cache.
+ * Callers that know their build pass its id to {@link LocatedArtifactCache#LocatedArtifactCache(File, String)},
+ * everything else in this process counts as one build.
+ * A variant is a whole directory, so its integrity records, packed copies, validators and partial downloads go with it.</p>
+ */
+public class CacheReferences {
+    static final String REFERENCES = ".references";
+    static final String TRASH = ".trash";
+    private static final int VARIANT_DEPTH = 3;
+    private static final int MAX_TRACKERS = 256;
+    private static final long STAMP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    static final String PROCESS_BUILD = System.currentTimeMillis() + "-" + UUID.randomUUID();
+    private static final Map<String, CacheReferences> TRACKERS = new LinkedHashMap<String, CacheReferences>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheReferences> eldest) {
+            return size() > MAX_TRACKERS;
+        }
+    };
+
+    private final Path root;
+    private final File file;
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+    private volatile long stamped;
+
+    private CacheReferences(File root, String build) {
+        this.root = root.toPath();
+        this.file = new File(new File(root, REFERENCES), build.replaceAll("[^A-Za-z0-9._-]", "_") + ".refs");
+    }
+
+    static CacheReferences forBuild(File root, String build) {
+        String key = root.getAbsolutePath() + File.pathSeparator + build;
+        synchronized (TRACKERS) {
+            return TRACKERS.computeIfAbsent(key, k -> new CacheReferences(root, build));
+        }
+    }
+
+    void touch(File path) {
+        Path relative = root.relativize(path.toPath());
+        if (relative.getNameCount() <= VARIANT_DEPTH)
+            return;
+        String variant = relative.subpath(0, VARIANT_DEPTH).toString().replace(File.separatorChar, '/');
+        if (!touched.add(variant)) {
+            stamp();
+            return;
+        }
+        try {
+            synchronized (this) {
+                file.getParentFile().mkdirs();
+                Files.write(file.toPath(), Collections.singletonList(variant), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                stamped = System.currentTimeMillis();
+            }
+        } catch (IOException e) {
+            // Losing a reference only means the variant may be collected early, it is computed again when needed
+            touched.remove(variant);
+        }
+    }
+
+    /**
+     * Collection orders builds by the modification time of their file, so keep it current while variants are reused without appending anything.
+     */
+    private void stamp() {
+        long now = System.currentTimeMillis();
+        if (now - stamped < STAMP_INTERVAL)
+            return;
+        stamped = now;
+        file.setLastModified(now);
+    }
+
+    /**
+     * Removes every variant that none of the last {@code keepBuilds} builds used, and that no build used within {@code maxAge}.
+     * Variants are first renamed out of the cache in one step, so a concurrent build either sees all of one or none of it,
+     * and then deleted. Variants without any recorded use are kept while they are younger than {@code maxAge}.
+     * Only directories with a version directory holding an integrity record count as variants, anything else under the root is left alone.
+     *
+     * <p>Files of a removed variant are gone from their old paths right away. A reader that already opened one keeps reading it where the
+     * platform allows that, but one that only holds the path, like a {@code File} returned by {@code asFile}, won't find it anymore.
+     * Collect between builds, not while one is using the cache.</p>
+     */
+    public static Result collectGarbage(File root, int keepBuilds, long maxAge, TimeUnit unit) throws IOException {
+        long cutoff = System.currentTimeMillis() - unit.toMillis(maxAge);
+        File refsDir = new File(root, REFERENCES);
+        File[] refs = refsDir.listFiles((dir, name) -> name.endsWith(".refs"));
+        List<File> builds = new ArrayList<>();
+        if (refs != null)
+            Collections.addAll(builds, refs);
+        builds.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+        Set<String> live = new HashSet<>();
+        List<File> expired = new ArrayList<>();
+        for (int x = 0; x < builds.size(); x++) {
+            File build = builds.get(x);
+            if (x < keepBuilds || build.lastModified() >= cutoff) {
+                live.addAll(Files.readAllLines(build.toPath(), StandardCharsets.UTF_8));
+            } else {
+                expired.add(build);
+            }
+        }
+
+        Path base = root.toPath();
+        List<Path> variants;
+        try (Stream<Path> stream = Files.walk(base, VARIANT_DEPTH)) {
+            variants = stream.filter(p -> base.relativize(p).getNameCount() == VARIANT_DEPTH)
+                    .filter(Files::isDirectory)
+                    .filter(p -> !base.relativize(p).getName(0).toString().startsWith("."))
+                    .filter(CacheReferences::hasRecords)
+                    .collect(Collectors.toList());
+        }
+
+        int removed = 0;
+        long bytes = 0;
+        File trash = new File(root, TRASH);
+        for (Path variant : variants) {
+            String name = base.relativize(variant).toString().replace(File.separatorChar, '/');
+            if (live.contains(name) || newestModification(variant) >= cutoff)
+                continue;
+            trash.mkdirs();
+            Path target = new File(trash, UUID.randomUUID().toString()).toPath();
+            try {
+                Files.move(variant, target);
+            } catch (IOException e) {
+                continue; // In use, on Windows, or gone already
+            }
+            bytes += delete(target);
+            removed++;
+        }
+
+        for (File build : expired)
+            Files.deleteIfExists(build.toPath());
+        // Leftovers of an earlier collection that was interrupted
+        File[] leftovers = trash.listFiles();
+        if (leftovers != null) {
+            for (File leftover : leftovers)
+                delete(leftover.toPath());
+        }
+        return new Result(variants.size(), removed, bytes);
+    }
+
+    /**
+     * Whether the directory is laid out like a variant, {@code [version]/[file].integrity}, rather than an artifact without a metadata hash
+     * or something else sharing the root.
+     */
+    private static boolean hasRecords(Path dir) {
+        try (Stream<Path> stream = Files.walk(dir, 2)) {
+            return stream.anyMatch(p -> dir.relativize(p).getNameCount() == 2 && p.getFileName().toString().endsWith(".integrity") && Files.isRegularFile(p));
+        } catch (IOException | UncheckedIOException e) {
+            return false;
+        }
+    }
+
+    private static long newestModification(Path variant) throws IOException {
+        try (Stream<Path> stream = Files.walk(variant)) {
+            return stream.mapToLong(p -> p.toFile().lastModified()).max().orElse(0);
+        }
+    }
+
+    private static long delete(Path path) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(path)) {
+            paths = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        long bytes = 0;
+        for (Path p : paths) {
+            File file = p.toFile();
+            if (file.isFile())
+                bytes += file.length();
+            Files.deleteIfExists(p);
+        }
+        return bytes;
+    }
+
+    public static class Result {
+        private final int variants;
+        private final int removed;
+        private final long bytes;
+
+        private Result(int variants, int removed, long bytes) {
+            this.variants = variants;
+            this.removed = removed;
+            this.bytes = bytes;
+        }
+
+        public int getVariants() {
+            return variants;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public long getBytesFreed() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Removed " + removed + " of " + variants + " variants, freeing " + bytes + " bytes";
+        }
+    }
+}
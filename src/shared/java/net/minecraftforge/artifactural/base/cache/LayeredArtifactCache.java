@@ -0,0 +1,124 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A cache that stores into a local {@link LocatedArtifactCache} root, but first looks in one or more shared roots it never writes to,
+ * such as a pre-seeded or network mounted cache. Entries found there are linked into the local root instead of being copied or computed again.
+ * A shared entry is only used if it has an integrity record and passes this cache's {@link Verification} against it.
+ * Hard links are used where the shared root is on the same file system, symbolic links otherwise, and a copy as the last resort.
+ *
+ * <p>Local writes always replace the link with a new file, so the shared roots are never modified.</p>
+ */
+public class LayeredArtifactCache extends ArtifactCacheBase {
+    private final LocatedArtifactCache local;
+    private final List<LocatedArtifactCache> shared;
+
+    public LayeredArtifactCache(File local, File... shared) {
+        this.local = new LocatedArtifactCache(local);
+        List<LocatedArtifactCache> roots = new ArrayList<>();
+        for (File root : shared)
+            roots.add(new LocatedArtifactCache(root));
+        this.shared = Collections.unmodifiableList(roots);
+    }
+
+    @Override
+    public Artifact.Cached store(Artifact artifact) {
+        File path = local.getPath(artifact);
+        local.touch(path);
+        if (!path.exists()) {
+            try {
+                linkShared(artifact, path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return doStore(path, artifact);
+    }
+
+    private void linkShared(Artifact artifact, File path) throws IOException {
+        for (LocatedArtifactCache root : shared) {
+            File candidate = root.getPath(artifact);
+            // Records can't be written into shared roots, so an entry without one can't be checked and isn't used
+            if (!candidate.exists() || !isValid(candidate, false))
+                continue;
+
+            Instrumentation metrics = Metrics.get();
+            metrics.counter("cache.sharedHit").increment();
+            path.getParentFile().mkdirs();
+            File record = record(candidate);
+            // Only missing under Verification.none, which trusts any file
+            if (record.exists())
+                Files.copy(record.toPath(), record(path).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            else
+                Files.deleteIfExists(record(path).toPath());
+            metrics.counter("cache.shared." + link(candidate.toPath(), path.toPath())).increment();
+            return;
+        }
+    }
+
+    private static String link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+            return "hardLink";
+        } catch (FileAlreadyExistsException e) {
+            return "raced";
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // Most likely a different file system, fall through
+        }
+        try {
+            Files.createSymbolicLink(target, source.toAbsolutePath());
+            return "symbolicLink";
+        } catch (FileAlreadyExistsException e) {
+            return "raced";
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // Windows without the privilege to create symbolic links
+        }
+        File tmp = File.createTempFile(target.getFileName().toString(), ".tmp", target.getParent().toFile());
+        try {
+            Files.copy(source, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        return "copy";
+    }
+
+    @Override
+    public String toString() {
+        return "LayeredArtifactCache(" + local + ", " + shared + ")";
+    }
+
+}
@@ -24,28 +24,66 @@ import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
 import net.minecraftforge.artifactural.base.util.PatternReplace;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.AbstractMap;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 public class LocatedArtifactCache extends ArtifactCacheBase {
     private static final String PATTERN = "[group]/[name](/[meta_hash])/[version]/[name]-[version](-[classifier])(-[specifier]).[extension]";
     private final File path;
+    private final CacheReferences references;
 
     public LocatedArtifactCache(File path) {
+        this(path, CacheReferences.PROCESS_BUILD);
+    }
+
+    /**
+     * @param build Id of the build using the cache, caches on the same root and build share their {@link CacheReferences}.
+     */
+    public LocatedArtifactCache(File path, String build) {
         this.path = path;
+        this.references = CacheReferences.forBuild(path, build);
     }
 
     @Override
     public Artifact.Cached store(Artifact artifact) {
-        return doStore(getPath(artifact), artifact);
+        File file = getPath(artifact);
+        touch(file);
+        return doStore(file, artifact);
+    }
+
+    /**
+     * Records that this build used the variant holding {@code file}.
+     */
+    void touch(File file) {
+        references.touch(file);
+    }
+
+    /**
+     * @see CacheReferences#collectGarbage(File, int, long, TimeUnit)
+     */
+    public CacheReferences.Result collectGarbage(int keepBuilds, long maxAge, TimeUnit unit) throws IOException {
+        return CacheReferences.collectGarbage(path, keepBuilds, maxAge, unit);
+    }
+
+    /**
+     * Whether a copy of the artifact is stored that passes the cache's verification, so reading it won't compute it again.
+     */
+    public boolean contains(Artifact artifact) throws IOException {
+        File file = getPath(artifact);
+        File packed = packed(file);
+        return (file.exists() && isValid(file)) || (packed.exists() && isValid(packed));
     }
 
     public File getPath(Artifact artifact) {
         ArtifactIdentifier identifier = artifact.getIdentifier();
-        Map<String, String> names = Stream.of(
+        // Not Collectors.toMap, it rejects the null values missing classifiers have
+        Map<String, String> names = new HashMap<>();
+        Stream.of(
             entry("group", identifier.getGroup()),
             entry("name", identifier.getName()),
             entry("version", identifier.getVersion()),
@@ -53,7 +91,7 @@ public class LocatedArtifactCache extends ArtifactCacheBase {
             entry("extension", identifier.getExtension()),
             //entry("specifier", specifier), /?
             entry("meta_hash", artifact.getMetadata().getHash())
-        ).collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+        ).forEach(e -> names.put(e.getKey(), e.getValue()));
         return new File(path, PatternReplace.replace(PATTERN, names));
     }
 
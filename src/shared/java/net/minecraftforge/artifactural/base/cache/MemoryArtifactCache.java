@@ -0,0 +1,270 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
+import net.minecraftforge.artifactural.api.cache.ArtifactCache;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the bytes of small artifacts in memory in front of another cache, for poms, module files and other metadata that get read over and over.
+ * Only artifacts up to {@code maxEntrySize} bytes are held, and all of them together stay under {@code maxTotalSize}.
+ * When full, a new artifact only replaces the least recently used one if it has been requested more often, as in TinyLFU.
+ *
+ * <p>{@link Artifact.Cached#openStream()} is served from memory where possible, the file of the delegate cache is only written once
+ * {@link Artifact.Cached#asFile()} is called, or when the artifact turns out to be too large to hold.</p>
+ */
+public class MemoryArtifactCache implements ArtifactCache {
+    private static final int MAX_TOO_LARGE = 10_000;
+
+    private final ArtifactCache delegate;
+    private final int maxEntrySize;
+    private final long maxTotalSize;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final FrequencySketch sketch;
+    // Keys of artifacts that didn't fit, so they aren't read into memory again just to find out
+    private final Map<String, Boolean> tooLarge = new LinkedHashMap<String, Boolean>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_TOO_LARGE;
+        }
+    };
+    private long totalSize;
+
+    public MemoryArtifactCache(ArtifactCache delegate, int maxEntrySize, long maxTotalSize) {
+        this.delegate = delegate;
+        this.maxEntrySize = maxEntrySize;
+        this.maxTotalSize = maxTotalSize;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(16, maxTotalSize / Math.max(1, maxEntrySize / 4))));
+    }
+
+    @Override
+    public Artifact.Cached store(Artifact artifact) {
+        return new MemoryCachedArtifact(artifact, delegate.store(artifact), key(artifact));
+    }
+
+    private static String key(Artifact artifact) {
+        ArtifactIdentifier id = artifact.getIdentifier();
+        return id.getGroup() + ':' + id.getName() + ':' + id.getVersion() + ':' + id.getClassifier() + '@' + id.getExtension() + '#' + artifact.getMetadata().getHash();
+    }
+
+    private synchronized byte[] get(String key) {
+        sketch.increment(key);
+        return entries.get(key);
+    }
+
+    private synchronized void offer(String key, byte[] data) {
+        if (data.length > maxEntrySize || data.length > maxTotalSize || entries.containsKey(key))
+            return;
+
+        int frequency = sketch.frequency(key);
+        Iterator<Map.Entry<String, byte[]>> itr = entries.entrySet().iterator();
+        long needed = totalSize + data.length - maxTotalSize;
+        // Check the victims first, so a rejected candidate doesn't evict anything
+        long freed = 0;
+        while (freed < needed && itr.hasNext()) {
+            Map.Entry<String, byte[]> victim = itr.next();
+            if (sketch.frequency(victim.getKey()) >= frequency)
+                return;
+            freed += victim.getValue().length;
+        }
+
+        itr = entries.entrySet().iterator();
+        while (totalSize + data.length > maxTotalSize && itr.hasNext()) {
+            totalSize -= itr.next().getValue().length;
+            itr.remove();
+        }
+        entries.put(key, data);
+        totalSize += data.length;
+    }
+
+    private synchronized boolean isTooLarge(String key) {
+        return tooLarge.containsKey(key);
+    }
+
+    private synchronized void markTooLarge(String key) {
+        tooLarge.put(key, Boolean.TRUE);
+    }
+
+    private synchronized byte[] peek(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized long getSize() {
+        return totalSize;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryArtifactCache(" + delegate + ", " + maxEntrySize + ", " + maxTotalSize + ")";
+    }
+
+    private class MemoryCachedArtifact implements Artifact.Cached {
+        private final Artifact artifact;
+        private final Artifact.Cached backing;
+        private final String key;
+
+        private MemoryCachedArtifact(Artifact artifact, Artifact.Cached backing, String key) {
+            this.artifact = artifact;
+            this.backing = backing;
+            this.key = key;
+        }
+
+        @Override
+        public ArtifactIdentifier getIdentifier() {
+            return backing.getIdentifier();
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata() {
+            return backing.getMetadata();
+        }
+
+        @Override
+        public ArtifactType getType() {
+            return backing.getType();
+        }
+
+        @Override
+        public Artifact withMetadata(ArtifactMetadata metadata) {
+            return artifact.withMetadata(metadata);
+        }
+
+        @Override
+        public Artifact apply(ArtifactTransformer transformer) {
+            return artifact.apply(transformer);
+        }
+
+        @Override
+        public Artifact.Cached cache(ArtifactCache cache) {
+            return artifact.cache(cache);
+        }
+
+        @Override
+        public boolean isPresent() {
+            return peek(key) != null || backing.isPresent();
+        }
+
+        @Override
+        public InputStream openStream() throws IOException, MissingArtifactException {
+            Instrumentation metrics = Metrics.get();
+            byte[] data = get(key);
+            if (data != null) {
+                metrics.counter("memoryCache.hit").increment();
+                return new ByteArrayInputStream(data);
+            }
+            metrics.counter("memoryCache.miss").increment();
+            if (isTooLarge(key))
+                return backing.openStream();
+
+            // An existing file goes through the delegate, so it is verified before we hold on to it
+            File file = backing.getFileLocation();
+            boolean stored = file.exists() || ArtifactCacheBase.packed(file).exists();
+            InputStream source = stored ? backing.openStream() : artifact.openStream();
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            boolean complete;
+            try {
+                complete = readSmall(source, read);
+            } catch (IOException | RuntimeException e) {
+                source.close();
+                throw e;
+            }
+            if (complete) {
+                source.close();
+                data = read.toByteArray();
+                offer(key, data);
+                return new ByteArrayInputStream(data);
+            }
+
+            // Too large, carry on with what was read instead of reading the source again
+            markTooLarge(key);
+            InputStream rest = new SequenceInputStream(new ByteArrayInputStream(read.toByteArray()), source);
+            if (stored)
+                return rest;
+            return delegate.store(replay(rest)).openStream();
+        }
+
+        /**
+         * Reads the stream into {@code out}, stopping once it holds more than {@code maxEntrySize} bytes.
+         *
+         * @return {@code true} if the whole stream was read
+         */
+        private boolean readSmall(InputStream stream, ByteArrayOutputStream out) throws IOException {
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = stream.read(buf)) != -1) {
+                out.write(buf, 0, read);
+                if (out.size() > maxEntrySize)
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * The artifact, but the first stream opened is the given one, so the delegate can store it without reading the source again.
+         */
+        private Artifact replay(InputStream stream) {
+            AtomicReference<InputStream> first = new AtomicReference<>(stream);
+            return StreamableArtifact.ofStreamable(artifact.getIdentifier(), artifact.getType(), () -> {
+                InputStream ret = first.getAndSet(null);
+                return ret != null ? ret : artifact.openStream();
+            }).withMetadata(artifact.getMetadata());
+        }
+
+        @Override
+        public File asFile() throws IOException, MissingArtifactException {
+            byte[] data = peek(key);
+            if (data != null && !backing.getFileLocation().exists()) {
+                // Let the delegate store what we already hold instead of recomputing the artifact
+                Artifact held = StreamableArtifact.ofBytes(artifact.getIdentifier(), artifact.getType(), data).withMetadata(artifact.getMetadata());
+                return delegate.store(held).asFile();
+            }
+            return backing.asFile();
+        }
+
+        @Override
+        public File getFileLocation() throws IOException, MissingArtifactException {
+            return backing.getFileLocation();
+        }
+
+        @Override
+        public String toString() {
+            return "memory(" + backing + ")";
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How much {@link ArtifactCacheBase} checks a cached file against the size and hash recorded when it was written.
+ * Entries that fail the check are written again from their source artifact.
+ */
+public class Verification {
+    private static final Verification NONE = new Verification(false, 0);
+    private static final Verification SIZE = new Verification(true, 0);
+    private static final Verification HASH = new Verification(true, 1);
+
+    /**
+     * Trust any file that exists.
+     */
+    public static Verification none() {
+        return NONE;
+    }
+
+    /**
+     * Compare the file size only, this catches files truncated by a killed build and costs no reads.
+     */
+    public static Verification size() {
+        return SIZE;
+    }
+
+    /**
+     * Hash every file the first time it is used.
+     */
+    public static Verification hash() {
+        return HASH;
+    }
+
+    /**
+     * Compare the size of every file, and also hash the given fraction of them.
+     */
+    public static Verification sampled(double hashRate) {
+        return new Verification(true, Math.max(0, Math.min(1, hashRate)));
+    }
+
+    private final boolean size;
+    private final double hashRate;
+
+    private Verification(boolean size, double hashRate) {
+        this.size = size;
+        this.hashRate = hashRate;
+    }
+
+    boolean checkSize() {
+        return size;
+    }
+
+    boolean checkHash() {
+        return hashRate >= 1 || (hashRate > 0 && ThreadLocalRandom.current().nextDouble() < hashRate);
+    }
+
+    @Override
+    public String toString() {
+        return !size ? "Verification(none)" : hashRate == 0 ? "Verification(size)" : "Verification(hash " + hashRate + ")";
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.instrument;
+
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Holds the {@link Instrumentation} used by the shared and gradle components.
+ * Defaults to {@link Instrumentation#noop()} so nothing is recorded unless a consumer installs something.
+ * Several instrumentations can be installed at once, for example one per build running in the same daemon, each of them sees every metric.
+ */
+public final class Metrics {
+
+    private static final List<Instrumentation> installed = new ArrayList<>();
+    private static volatile Instrumentation current = Instrumentation.noop();
+
+    private Metrics() {
+    }
+
+    public static Instrumentation get() {
+        return current;
+    }
+
+    public static synchronized void install(Instrumentation instrumentation) {
+        installed.add(Objects.requireNonNull(instrumentation, "instrumentation"));
+        update();
+    }
+
+    /**
+     * Removes an instrumentation added with {@link #install(Instrumentation)}, leaving any others in place.
+     */
+    public static synchronized void uninstall(Instrumentation instrumentation) {
+        installed.remove(instrumentation);
+        update();
+    }
+
+    public static synchronized void reset() {
+        installed.clear();
+        update();
+    }
+
+    private static void update() {
+        if (installed.isEmpty())
+            current = Instrumentation.noop();
+        else if (installed.size() == 1)
+            current = installed.get(0);
+        else
+            current = new FanOut(new ArrayList<>(installed));
+    }
+
+    private static class FanOut implements Instrumentation {
+        private final List<Instrumentation> targets;
+
+        private FanOut(List<Instrumentation> targets) {
+            this.targets = targets;
+        }
+
+        @Override
+        public Counter counter(String name) {
+            List<Counter> counters = new ArrayList<>(targets.size());
+            for (Instrumentation target : targets)
+                counters.add(target.counter(name));
+            return amount -> {
+                for (Counter counter : counters)
+                    counter.add(amount);
+            };
+        }
+
+        @Override
+        public Timer timer(String name) {
+            List<Timer> timers = new ArrayList<>(targets.size());
+            for (Instrumentation target : targets)
+                timers.add(target.timer(name));
+            return new Timer() {
+                @Override
+                public long start() {
+                    return System.nanoTime();
+                }
+
+                @Override
+                public void stop(long start) {
+                    record(System.nanoTime() - start);
+                }
+
+                @Override
+                public void record(long nanos) {
+                    for (Timer timer : timers)
+                        timer.record(nanos);
+                }
+            };
+        }
+
+        @Override
+        public Histogram histogram(String name) {
+            List<Histogram> histograms = new ArrayList<>(targets.size());
+            for (Instrumentation target : targets)
+                histograms.add(target.histogram(name));
+            return value -> {
+                for (Histogram histogram : histograms)
+                    histogram.record(value);
+            };
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.instrument;
+
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simple in memory {@link Instrumentation} that keeps totals per metric name and can render them as a report.
+ */
+public class RecordingInstrumentation implements Instrumentation {
+
+    private final ConcurrentMap<String, RecordingCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RecordingHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RecordingTimer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new RecordingCounter());
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new RecordingTimer());
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new RecordingHistogram());
+    }
+
+    public long getCount(String counter) {
+        RecordingCounter ret = counters.get(counter);
+        return ret == null ? 0 : ret.value.sum();
+    }
+
+    public String report() {
+        StringBuilder buf = new StringBuilder();
+        Map<String, RecordingCounter> counters = new TreeMap<>(this.counters);
+        Map<String, RecordingTimer> timers = new TreeMap<>(this.timers);
+        Map<String, RecordingHistogram> histograms = new TreeMap<>(this.histograms);
+
+        counters.forEach((name, counter) -> buf.append(String.format(Locale.ENGLISH, "  %-48s %d%n", name, counter.value.sum())));
+        timers.forEach((name, timer) -> {
+            long count = timer.values.count.sum();
+            if (count == 0)
+                return;
+            buf.append(String.format(Locale.ENGLISH, "  %-48s count=%d total=%.1fms avg=%.3fms max=%.3fms%n", name, count,
+                    millis(timer.values.sum.sum()), millis(timer.values.sum.sum() / count), millis(timer.values.max.get())));
+        });
+        histograms.forEach((name, histogram) -> {
+            long count = histogram.count.sum();
+            if (count == 0)
+                return;
+            buf.append(String.format(Locale.ENGLISH, "  %-48s count=%d sum=%d min=%d avg=%d max=%d%n", name, count,
+                    histogram.sum.sum(), histogram.min.get(), histogram.sum.sum() / count, histogram.max.get()));
+        });
+        return buf.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordingInstrumentation(" + counters.size() + " counters, " + timers.size() + " timers, " + histograms.size() + " histograms)";
+    }
+
+    private static class RecordingCounter implements Counter {
+        private final LongAdder value = new LongAdder();
+
+        @Override
+        public void increment() {
+            value.increment();
+        }
+
+        @Override
+        public void add(long amount) {
+            value.add(amount);
+        }
+    }
+
+    private static class RecordingHistogram implements Histogram {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        @Override
+        public void record(long value) {
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+        }
+    }
+
+    private static class RecordingTimer implements Timer {
+        private final RecordingHistogram values = new RecordingHistogram();
+
+        @Override
+        public long start() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        @Override
+        public void record(long nanos) {
+            values.record(nanos);
+        }
+    }
+
+}
@@ -25,7 +25,9 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.instrument.Instrumentation;
 import net.minecraftforge.artifactural.api.repository.ArtifactProvider;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
 
 public class ArtifactProviderBuilder<S, I> implements ArtifactProvider.Builder<S, I> {
 
@@ -85,14 +87,27 @@ public class ArtifactProviderBuilder<S, I> implements ArtifactProvider.Builder<S
 
         @Override
         public Artifact getArtifact(S info) {
-            I localInfo = mapper.apply(info);
-            if (localInfo == null) return Artifact.none();
+            Instrumentation metrics = Metrics.get();
+            Instrumentation.Timer timer = metrics.timer("provider.getArtifact");
+            long start = timer.start();
+            try {
+                I localInfo = mapper.apply(info);
+                if (localInfo == null) {
+                    metrics.counter("provider.filtered").increment();
+                    return Artifact.none();
+                }
 
-            for (ArtifactProvider<I> provider : providers) {
-                Artifact artifact = provider.getArtifact(localInfo);
-                if (artifact.isPresent()) return artifact;
+                Instrumentation.Counter probes = metrics.counter("provider.isPresent");
+                for (ArtifactProvider<I> provider : providers) {
+                    Artifact artifact = provider.getArtifact(localInfo);
+                    probes.increment();
+                    if (artifact.isPresent()) return artifact;
+                }
+                metrics.counter("provider.miss").increment();
+                return Artifact.none();
+            } finally {
+                timer.stop(start);
             }
-            return Artifact.none();
         }
 
     }
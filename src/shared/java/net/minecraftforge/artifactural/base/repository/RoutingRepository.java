@@ -0,0 +1,256 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.repository;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.repository.Repository;
+import net.minecraftforge.artifactural.api.repository.RepositoryContent;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.util.VersionComparator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A repository made of several others, each serving the groups or modules it was routed to.
+ * Routes are kept in a trie of group segments, so a lookup only costs one step per segment and
+ * only reaches the repositories that can have the artifact. Anything without a route is missing right away.
+ *
+ * <p>A group route also covers its subgroups, {@code net.minecraftforge} serves {@code net.minecraftforge.fml} too.
+ * When several routes match, module routes win over group routes and longer groups over shorter ones,
+ * and the first repository that has the artifact is used.</p>
+ */
+public class RoutingRepository implements Repository {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final Node root;
+    private final List<Route> routes;
+    private final RepositoryContent content;
+
+    private RoutingRepository(Node root, List<Route> routes) {
+        this.root = root;
+        this.routes = routes;
+        this.content = content(routes);
+    }
+
+    private static RepositoryContent content(List<Route> routes) {
+        SimpleRepositoryContent.Builder builder = SimpleRepositoryContent.builder();
+        for (Route route : routes) {
+            if (route.getName() != null)
+                builder.module(route.getGroup(), route.getName());
+            else if (route.getGroup().isEmpty())
+                return null;
+            else
+                builder.group(route.getGroup());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return Every route, in the order they were added
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * @return The repositories that may serve the module, most specific first
+     */
+    public List<Repository> route(String group, String name) {
+        List<List<Repository>> matches = new ArrayList<>();
+        Node node = root;
+        matches.add(node.repositories);
+        if (!group.isEmpty()) {
+            for (String segment : group.split("\\.")) {
+                node = node.children.get(segment);
+                if (node == null)
+                    break;
+                matches.add(node.repositories);
+            }
+        }
+        Set<Repository> ret = new LinkedHashSet<>();
+        if (node != null) {
+            List<Repository> modules = node.modules.get(name);
+            if (modules != null)
+                ret.addAll(modules);
+        }
+        for (int x = matches.size() - 1; x >= 0; x--)
+            ret.addAll(matches.get(x));
+        return new ArrayList<>(ret);
+    }
+
+    /**
+     * @return The groups and modules there are routes for, or null if a route takes everything
+     */
+    @Override
+    public RepositoryContent getContent() {
+        return content;
+    }
+
+    @Override
+    public Artifact getArtifact(ArtifactIdentifier identifier) {
+        List<Repository> candidates = route(identifier.getGroup(), identifier.getName());
+        if (candidates.isEmpty()) {
+            Metrics.get().counter("routing.unrouted").increment();
+            return Artifact.none();
+        }
+        for (int x = 0; x < candidates.size() - 1; x++) {
+            Artifact artifact = candidates.get(x).getArtifact(identifier);
+            if (artifact != null && artifact.isPresent())
+                return artifact;
+        }
+        return candidates.get(candidates.size() - 1).getArtifact(identifier);
+    }
+
+    /**
+     * @return The versions of every repository the module is routed to. A single list is returned as is,
+     *         several are merged without duplicates and sorted by {@link VersionComparator}.
+     */
+    @Override
+    public List<String> listVersions(String group, String name) {
+        List<String> first = null;
+        Set<String> merged = null;
+        for (Repository repository : route(group, name)) {
+            List<String> versions = repository.listVersions(group, name);
+            if (versions == null || versions.isEmpty())
+                continue;
+            if (first == null) {
+                first = versions;
+                continue;
+            }
+            if (merged == null)
+                merged = new LinkedHashSet<>(first);
+            merged.addAll(versions);
+        }
+        if (merged == null)
+            return first == null ? Collections.emptyList() : first;
+        List<String> ret = new ArrayList<>(merged);
+        ret.sort(VersionComparator.INSTANCE);
+        return ret;
+    }
+
+    @Override
+    public File getMavenMetadata(String group, String name) {
+        for (Repository repository : route(group, name)) {
+            File file = repository.getMavenMetadata(group, name);
+            if (file != null)
+                return file;
+        }
+        return null;
+    }
+
+    public static class Route {
+        private final String group;
+        private final String name;
+        private final Repository repository;
+
+        private Route(String group, String name, Repository repository) {
+            this.group = group;
+            this.name = name;
+            this.repository = repository;
+        }
+
+        /**
+         * @return The group, or group prefix if there is no name. Empty for a route that takes everything.
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        /**
+         * @return The module name, or null if the route takes the whole group and its subgroups
+         */
+        public String getName() {
+            return name;
+        }
+
+        public Repository getRepository() {
+            return repository;
+        }
+
+        @Override
+        public String toString() {
+            return (group.isEmpty() ? "*" : group) + (name == null ? "" : ":" + name) + " -> " + repository;
+        }
+    }
+
+    public static class Builder {
+        private final List<Route> routes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Routes a group and all its subgroups to the repository, an empty group routes everything.
+         */
+        public Builder route(String group, Repository repository) {
+            routes.add(new Route(group, null, repository));
+            return this;
+        }
+
+        /**
+         * Routes a single module to the repository.
+         */
+        public Builder route(String group, String name, Repository repository) {
+            routes.add(new Route(group, name, repository));
+            return this;
+        }
+
+        /**
+         * Every call builds its own trie, so routes added afterwards don't change repositories that were already built.
+         */
+        public RoutingRepository build() {
+            Node root = new Node();
+            for (Route route : routes) {
+                Node node = node(root, route.getGroup());
+                if (route.getName() == null)
+                    node.repositories.add(route.getRepository());
+                else
+                    node.modules.computeIfAbsent(route.getName(), k -> new ArrayList<>()).add(route.getRepository());
+            }
+            return new RoutingRepository(root, Collections.unmodifiableList(new ArrayList<>(routes)));
+        }
+
+        private static Node node(Node root, String group) {
+            Node node = root;
+            if (!group.isEmpty()) {
+                for (String segment : group.split("\\."))
+                    node = node.children.computeIfAbsent(segment, k -> new Node());
+            }
+            return node;
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Repository> repositories = new ArrayList<>();
+        private final Map<String, List<Repository>> modules = new HashMap<>();
+    }
+}
@@ -23,17 +23,34 @@ import net.minecraftforge.artifactural.api.artifact.Artifact;
 import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
 import net.minecraftforge.artifactural.api.repository.ArtifactProvider;
 import net.minecraftforge.artifactural.api.repository.Repository;
+import net.minecraftforge.artifactural.api.repository.RepositoryContent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
 
 public class SimpleRepository implements Repository {
 
     public static Repository of(ArtifactProvider<ArtifactIdentifier> provider) {
-        return new SimpleRepository(provider);
+        return new SimpleRepository(provider, (group, name) -> Collections.emptyList(), null);
+    }
+
+    public static Repository of(ArtifactProvider<ArtifactIdentifier> provider, BiFunction<String, String, List<String>> versionLister) {
+        return new SimpleRepository(provider, versionLister, null);
+    }
+
+    public static Repository of(ArtifactProvider<ArtifactIdentifier> provider, BiFunction<String, String, List<String>> versionLister, RepositoryContent content) {
+        return new SimpleRepository(provider, versionLister, content);
     }
 
     private final ArtifactProvider<ArtifactIdentifier> provider;
+    private final BiFunction<String, String, List<String>> versionLister;
+    private final RepositoryContent content;
 
-    private SimpleRepository(ArtifactProvider<ArtifactIdentifier> provider) {
+    private SimpleRepository(ArtifactProvider<ArtifactIdentifier> provider, BiFunction<String, String, List<String>> versionLister, RepositoryContent content) {
         this.provider = provider;
+        this.versionLister = versionLister;
+        this.content = content;
     }
 
     @Override
@@ -41,4 +58,15 @@ public class SimpleRepository implements Repository {
         return provider.getArtifact(identifier);
     }
 
+    @Override
+    public List<String> listVersions(String group, String name) {
+        List<String> ret = versionLister.apply(group, name);
+        return ret == null ? Collections.emptyList() : ret;
+    }
+
+    @Override
+    public RepositoryContent getContent() {
+        return content;
+    }
+
 }
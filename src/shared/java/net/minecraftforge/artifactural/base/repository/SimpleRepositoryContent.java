@@ -0,0 +1,128 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.repository;
+
+import net.minecraftforge.artifactural.api.repository.RepositoryContent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class SimpleRepositoryContent implements RepositoryContent {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final Set<String> groups;
+    private final Set<String> modules;
+    private final List<String> versionPatterns;
+    private final List<Pattern> versions;
+
+    private SimpleRepositoryContent(Set<String> groups, Set<String> modules, List<String> versionPatterns) {
+        this.groups = Collections.unmodifiableSet(groups);
+        this.modules = Collections.unmodifiableSet(modules);
+        this.versionPatterns = Collections.unmodifiableList(versionPatterns);
+        this.versions = versionPatterns.stream().map(Pattern::compile).collect(Collectors.toList());
+    }
+
+    @Override
+    public Set<String> getGroups() {
+        return groups;
+    }
+
+    @Override
+    public Set<String> getModules() {
+        return modules;
+    }
+
+    @Override
+    public List<String> getVersionPatterns() {
+        return versionPatterns;
+    }
+
+    @Override
+    public boolean includes(String group, String name, String version) {
+        if (!modules.contains(group + ':' + name) && !includesGroup(group))
+            return false;
+        if (versions.isEmpty() || version == null)
+            return true;
+        for (Pattern pattern : versions) {
+            if (pattern.matcher(version).matches())
+                return true;
+        }
+        return false;
+    }
+
+    private boolean includesGroup(String group) {
+        while (true) {
+            if (groups.contains(group))
+                return true;
+            int dot = group.lastIndexOf('.');
+            if (dot == -1)
+                return false;
+            group = group.substring(0, dot);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RepositoryContent(groups=" + groups + ", modules=" + modules + ", versions=" + versionPatterns + ")";
+    }
+
+    public static class Builder {
+        private final Set<String> groups = new LinkedHashSet<>();
+        private final Set<String> modules = new LinkedHashSet<>();
+        private final List<String> versions = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Serves the group and all its subgroups.
+         */
+        public Builder group(String group) {
+            groups.add(group);
+            return this;
+        }
+
+        public Builder module(String group, String name) {
+            modules.add(group + ':' + name);
+            return this;
+        }
+
+        /**
+         * Only serves versions matching the regular expression, may be called more than once.
+         */
+        public Builder version(String pattern) {
+            Pattern.compile(pattern); // Fail here rather than on the first lookup
+            versions.add(pattern);
+            return this;
+        }
+
+        public SimpleRepositoryContent build() {
+            return new SimpleRepositoryContent(new LinkedHashSet<>(groups), new LinkedHashSet<>(modules), new ArrayList<>(versions));
+        }
+    }
+}
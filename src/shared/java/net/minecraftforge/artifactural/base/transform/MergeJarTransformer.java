@@ -0,0 +1,281 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.transform;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
+import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.util.ZipIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.zip.ZipException;
+
+/**
+ * Merges the transformed artifact with other jars into a single jar.
+ * Entries are copied as stored in their source jar, so deflated data is never inflated and deflated again,
+ * and the output is written in entry name order so the same inputs always produce the same bytes.
+ * The manifest and its directory are written first, as {@link java.util.jar.JarInputStream} only finds it there.
+ */
+public class MergeJarTransformer implements ArtifactTransformer {
+
+    public enum Conflict {
+        /** Keep the entry from the first input that has it, the transformed artifact comes first. */
+        FIRST,
+        /** Keep the entry from the last input that has it. */
+        LAST,
+        /** Fail the merge if two inputs have the same file entry. The manifest is exempt, the one of the first input that has it is kept. */
+        FAIL
+    }
+
+    private static final String MANIFEST_DIR = "META-INF/";
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final Comparator<String> ENTRY_ORDER = Comparator.<String>comparingInt(name -> name.equals(MANIFEST_DIR) ? 0 : name.equals(MANIFEST) ? 1 : 2)
+            .thenComparing(Comparator.naturalOrder());
+
+    public static MergeJarTransformer of(Artifact... others) {
+        return new MergeJarTransformer(Arrays.asList(others), Conflict.FIRST, Collections.emptyList(), name -> false);
+    }
+
+    private final List<Artifact> others;
+    private final Conflict conflict;
+    private final List<String> excludeNames;
+    private final Predicate<String> exclude;
+
+    private MergeJarTransformer(List<Artifact> others, Conflict conflict, List<String> excludeNames, Predicate<String> exclude) {
+        this.others = Collections.unmodifiableList(new ArrayList<>(others));
+        this.conflict = conflict;
+        this.excludeNames = excludeNames;
+        this.exclude = exclude;
+    }
+
+    public MergeJarTransformer conflict(Conflict conflict) {
+        return new MergeJarTransformer(others, conflict, excludeNames, exclude);
+    }
+
+    /**
+     * Entries whose whole name matches this regex are left out of the output, for example {@code META-INF/.*\.SF} for signature files.
+     */
+    public MergeJarTransformer exclude(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return exclude(regex, name -> pattern.matcher(name).matches());
+    }
+
+    /**
+     * Entries matching this are left out of the output.
+     *
+     * @param name Stable description of the predicate, it is part of the metadata so it has to change whenever the predicate does.
+     */
+    public MergeJarTransformer exclude(String name, Predicate<String> exclude) {
+        List<String> names = new ArrayList<>(excludeNames);
+        names.add(name);
+        return new MergeJarTransformer(others, conflict, Collections.unmodifiableList(names), this.exclude.or(exclude));
+    }
+
+    @Override
+    public Artifact transform(Artifact artifact) {
+        List<Artifact> inputs = new ArrayList<>();
+        inputs.add(artifact);
+        inputs.addAll(others);
+        return StreamableArtifact.ofStreamable(artifact.getIdentifier(), artifact.getType(), () -> {
+            File tmp = File.createTempFile("artifactural-merge", ".jar");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp.toPath()), 1 << 16)) {
+                    merge(inputs, out);
+                }
+                return Files.newInputStream(tmp.toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException | RuntimeException e) {
+                tmp.delete();
+                throw e;
+            }
+        }).withMetadata(withInfo(artifact.getMetadata()));
+    }
+
+    @Override
+    public ArtifactMetadata withInfo(ArtifactMetadata metadata) {
+        StringBuilder info = new StringBuilder(conflict.name());
+        for (Artifact other : others)
+            info.append(',').append(other.getIdentifier()).append('#').append(other.getMetadata().getHash());
+        for (String name : excludeNames)
+            info.append(",exclude=").append(name);
+        return metadata.with("merge_jar", info.toString());
+    }
+
+    private void merge(List<Artifact> inputs, OutputStream out) throws IOException {
+        List<SeekableByteChannel> channels = new ArrayList<>();
+        try {
+            Map<String, Source> selected = new TreeMap<>(ENTRY_ORDER);
+            for (Artifact input : inputs) {
+                SeekableByteChannel channel = input.openChannel();
+                channels.add(channel);
+                for (ZipIndex.Entry entry : ZipIndex.read(channel).getEntries()) {
+                    if (exclude.test(entry.getName()))
+                        continue;
+                    Source previous = selected.get(entry.getName());
+                    if (previous == null || (conflict == Conflict.LAST && !entry.isDirectory())) {
+                        selected.put(entry.getName(), new Source(channel, entry));
+                    } else if (conflict == Conflict.FAIL && !entry.isDirectory() && !entry.getName().equals(MANIFEST)) {
+                        throw new ZipException("Duplicate entry " + entry.getName() + " in " + input);
+                    }
+                }
+            }
+
+            ZipOutput zip = new ZipOutput(out);
+            for (Source source : selected.values())
+                zip.copy(source.channel, source.entry);
+            zip.finish();
+        } finally {
+            for (SeekableByteChannel channel : channels)
+                channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MergeJarTransformer(" + others + ", " + conflict + ", " + excludeNames + ")";
+    }
+
+    private static class Source {
+        private final SeekableByteChannel channel;
+        private final ZipIndex.Entry entry;
+
+        private Source(SeekableByteChannel channel, ZipIndex.Entry entry) {
+            this.channel = channel;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Minimal zip writer that only copies already stored entries.
+     */
+    private static class ZipOutput {
+        private static final int UTF8_FLAG = 1 << 11;
+
+        private final OutputStream out;
+        private final List<byte[]> centralDirectory = new ArrayList<>();
+        private final byte[] buffer = new byte[1 << 16];
+        private long written;
+
+        private ZipOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        private void copy(SeekableByteChannel channel, ZipIndex.Entry entry) throws IOException {
+            if (entry.isEncrypted())
+                throw new ZipException("Encrypted entries are not supported: " + entry.getName());
+            if (entry.getCompressedSize() >= 0xFFFFFFFFL || entry.getSize() >= 0xFFFFFFFFL || written >= 0xFFFFFFFFL)
+                throw new ZipException("Zip64 output is not supported: " + entry.getName());
+
+            byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+            // Sizes are known up front, so the data descriptor flag is dropped
+            int flags = (entry.getFlags() & ~(1 << 3)) | UTF8_FLAG;
+            long offset = written;
+
+            ByteBuffer loc = ByteBuffer.allocate(30 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+            loc.putInt(0x04034b50);
+            loc.putShort((short) 20);
+            loc.putShort((short) flags);
+            loc.putShort((short) entry.getMethod());
+            loc.putInt(entry.getDosTime());
+            loc.putInt(entry.getCrc());
+            loc.putInt((int) entry.getCompressedSize());
+            loc.putInt((int) entry.getSize());
+            loc.putShort((short) name.length);
+            loc.putShort((short) 0);
+            loc.put(name);
+            write(loc.array(), loc.position());
+
+            try (InputStream data = ZipIndex.openRaw(channel, entry)) {
+                int read;
+                while ((read = data.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    written += read;
+                }
+            }
+
+            ByteBuffer cen = ByteBuffer.allocate(46 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+            cen.putInt(0x02014b50);
+            // Keep the host system of the source, it tells how to read the external attributes
+            cen.putShort((short) ((entry.getVersionMadeBy() & 0xFF00) | 20));
+            cen.putShort((short) 20);
+            cen.putShort((short) flags);
+            cen.putShort((short) entry.getMethod());
+            cen.putInt(entry.getDosTime());
+            cen.putInt(entry.getCrc());
+            cen.putInt((int) entry.getCompressedSize());
+            cen.putInt((int) entry.getSize());
+            cen.putShort((short) name.length);
+            cen.putShort((short) 0); // extra
+            cen.putShort((short) 0); // comment
+            cen.putShort((short) 0); // disk
+            cen.putShort((short) 0); // internal attributes
+            cen.putInt(entry.getExternalAttributes());
+            cen.putInt((int) offset);
+            cen.put(name);
+            centralDirectory.add(cen.array());
+        }
+
+        private void finish() throws IOException {
+            if (centralDirectory.size() >= 0xFFFF)
+                throw new ZipException("Zip64 output is not supported: " + centralDirectory.size() + " entries");
+            long start = written;
+            for (byte[] entry : centralDirectory)
+                write(entry, entry.length);
+            if (start >= 0xFFFFFFFFL || written - start >= 0xFFFFFFFFL)
+                throw new ZipException("Zip64 output is not supported: central directory at " + start + ", " + (written - start) + " bytes");
+
+            ByteBuffer eocd = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            eocd.putInt(0x06054b50);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) centralDirectory.size());
+            eocd.putShort((short) centralDirectory.size());
+            eocd.putInt((int) (written - start));
+            eocd.putInt((int) start);
+            eocd.putShort((short) 0);
+            write(eocd.array(), eocd.position());
+            out.flush();
+        }
+
+        private void write(byte[] data, int length) throws IOException {
+            out.write(data, 0, length);
+            written += length;
+        }
+    }
+}
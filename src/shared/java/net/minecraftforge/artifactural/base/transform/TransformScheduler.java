@@ -0,0 +1,277 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.transform;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.api.artifact.ArtifactMetadata;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.api.artifact.MissingArtifactException;
+import net.minecraftforge.artifactural.api.cache.ArtifactCache;
+import net.minecraftforge.artifactural.api.transform.ArtifactTransformer;
+import net.minecraftforge.artifactural.base.artifact.ArtifactBase;
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+import net.minecraftforge.artifactural.base.util.BlockingExecutor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs chains of transformers as a graph of steps instead of inline and one after the other.
+ * Each step is keyed by its input and the metadata its transformer adds through {@link ArtifactTransformer#withInfo(ArtifactMetadata)},
+ * so asking for a step that is already scheduled returns the running one instead of doing the work twice.
+ * Steps run on the given executor as soon as their inputs are done, and their result is stored in the cache.
+ * Source steps run on a {@link BlockingExecutor} by default, as they mostly wait on I/O.
+ *
+ * <p>As with caching, transformers must describe everything that changes their output in {@code withInfo},
+ * two transformers adding the same info to the same input are considered the same step.
+ * A transformer that adds nothing is rejected, its step would be mistaken for its input.</p>
+ */
+public class TransformScheduler implements AutoCloseable {
+
+    /**
+     * Creates a scheduler running at most {@code parallelism} steps at once on daemon threads.
+     * The threads belong to the scheduler and are stopped when it is closed.
+     */
+    public static TransformScheduler of(ArtifactCache cache, int parallelism) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "artifactural-transform-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, factory);
+        return new TransformScheduler(cache, executor, BlockingExecutor.shared(), executor);
+    }
+
+    private final ArtifactCache cache;
+    private final Executor executor;
+    private final Executor sourceExecutor;
+    private final ExecutorService owned;
+    private final ConcurrentMap<String, Step> steps = new ConcurrentHashMap<>();
+
+    /**
+     * The executor stays the caller's, closing the scheduler doesn't shut it down.
+     */
+    public TransformScheduler(ArtifactCache cache, Executor executor) {
+        this(cache, executor, BlockingExecutor.shared());
+    }
+
+    /**
+     * @param sourceExecutor Runs the {@link #source(Artifact)} steps, which mostly wait on downloads
+     */
+    public TransformScheduler(ArtifactCache cache, Executor executor, Executor sourceExecutor) {
+        this(cache, executor, sourceExecutor, null);
+    }
+
+    private TransformScheduler(ArtifactCache cache, Executor executor, Executor sourceExecutor, ExecutorService owned) {
+        this.cache = cache;
+        this.executor = executor;
+        this.sourceExecutor = sourceExecutor;
+        this.owned = owned;
+    }
+
+    /**
+     * Schedules caching the artifact itself, typically something to download.
+     */
+    public Step source(Artifact artifact) {
+        return schedule(artifact.getIdentifier(), artifact.getType(), artifact.getMetadata(), new ArrayList<>(), sourceExecutor,
+                () -> artifact.optionallyCache(cache));
+    }
+
+    /**
+     * Schedules applying the transformer to the output of {@code input}.
+     * Transformers that read other artifacts, such as {@link MergeJarTransformer}, can be given the {@link Step#getArtifact()}
+     * of other steps, which then have to be passed as {@code dependencies} so this step waits for them.
+     */
+    public Step transform(Step input, ArtifactTransformer transformer, Step... dependencies) {
+        ArtifactMetadata metadata = transformer.withInfo(input.metadata);
+        if (metadata.getHash().equals(input.metadata.getHash()))
+            throw new IllegalArgumentException("Transformer " + transformer + " doesn't describe itself in withInfo, its output can't be told apart from its input");
+        List<Step> after = new ArrayList<>(Arrays.asList(dependencies));
+        after.add(input);
+        return schedule(input.identifier, input.type, metadata, after, executor,
+                () -> input.future.join().apply(transformer).cache(cache));
+    }
+
+    /**
+     * Schedules applying each transformer in order, each to the output of the previous one.
+     */
+    public Step chain(Artifact artifact, ArtifactTransformer... transformers) {
+        Step step = source(artifact);
+        for (ArtifactTransformer transformer : transformers)
+            step = transform(step, transformer);
+        return step;
+    }
+
+    private Step schedule(ArtifactIdentifier identifier, ArtifactType type, ArtifactMetadata metadata, List<Step> after, Executor executor, Work work) {
+        String key = identifier.getGroup() + ':' + identifier.getName() + ':' + identifier.getVersion() + ':' + identifier.getClassifier()
+                + '@' + identifier.getExtension() + '#' + metadata.getHash();
+        Step existing = steps.get(key);
+        if (existing != null) {
+            Metrics.get().counter("scheduler.deduplicated").increment();
+            return existing;
+        }
+
+        CompletableFuture<Artifact.Cached> future = new CompletableFuture<>();
+        Step step = new Step(identifier, type, metadata, future);
+        existing = steps.putIfAbsent(key, step);
+        if (existing != null) {
+            Metrics.get().counter("scheduler.deduplicated").increment();
+            return existing;
+        }
+
+        // Later requests hit the cache instead, so finished steps don't need to stay around
+        future.whenComplete((result, error) -> steps.remove(key, step));
+        CompletableFuture<?>[] inputs = after.stream().map(s -> s.future).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(inputs).whenComplete((ignored, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+                return;
+            }
+            try {
+                executor.execute(() -> run(work, future));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return step;
+    }
+
+    /**
+     * Stops the threads of a scheduler made with {@link #of(ArtifactCache, int)} once the queued steps are done.
+     * Steps still waiting on their inputs then fail. Schedulers given an executor leave it alone.
+     */
+    @Override
+    public void close() {
+        if (owned != null)
+            owned.shutdown();
+    }
+
+    private static void run(Work work, CompletableFuture<Artifact.Cached> future) {
+        try {
+            Artifact.Cached result = work.get();
+            result.asFile();
+            future.complete(result);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        Artifact.Cached get() throws IOException;
+    }
+
+    /**
+     * A scheduled step, its output metadata is known right away even though the work may still be running.
+     */
+    public static class Step {
+        private final ArtifactIdentifier identifier;
+        private final ArtifactType type;
+        private final ArtifactMetadata metadata;
+        private final CompletableFuture<Artifact.Cached> future;
+
+        private Step(ArtifactIdentifier identifier, ArtifactType type, ArtifactMetadata metadata, CompletableFuture<Artifact.Cached> future) {
+            this.identifier = identifier;
+            this.type = type;
+            this.metadata = metadata;
+            this.future = future;
+        }
+
+        public CompletableFuture<Artifact.Cached> getFuture() {
+            return future.thenApply(result -> result);
+        }
+
+        /**
+         * Waits for this step and everything it depends on.
+         */
+        public Artifact.Cached get() throws IOException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException)
+                    throw ((UncheckedIOException) cause).getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                throw e;
+            }
+        }
+
+        /**
+         * An artifact standing in for the output of this step, reading it waits for the step to finish.
+         */
+        public Artifact getArtifact() {
+            return new StepArtifact(this, metadata);
+        }
+
+        @Override
+        public String toString() {
+            return "Step(" + identifier + ", " + metadata.getHash() + (future.isDone() ? ", done)" : ")");
+        }
+    }
+
+    private static class StepArtifact extends ArtifactBase {
+        private final Step step;
+
+        private StepArtifact(Step step, ArtifactMetadata metadata) {
+            super(step.identifier, step.type, metadata);
+            this.step = step;
+        }
+
+        @Override
+        public Artifact withMetadata(ArtifactMetadata metadata) {
+            return new StepArtifact(step, metadata);
+        }
+
+        @Override
+        public boolean isPresent() {
+            try {
+                return step.get().isPresent();
+            } catch (IOException | CompletionException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException, MissingArtifactException {
+            return step.get().openStream();
+        }
+
+        @Override
+        public String toString() {
+            return "StepArtifact(" + step + ")";
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs work that spends most of its time blocked, such as downloads or provider lookups.
+ * On Java 21 and newer every task gets its own virtual thread, so many slow lookups don't need as many OS threads.
+ * Older runtimes get a bounded pool of daemon threads instead.
+ *
+ * <p>Virtual threads are found through reflection as this is compiled for Java 8.
+ * They can be turned off with the {@code artifactural.virtualThreads=false} system property,
+ * and {@code artifactural.blockingThreads} sets the size of the fallback pool.</p>
+ */
+public class BlockingExecutor implements Executor {
+    private static final BlockingExecutor SHARED = create("artifactural-io",
+            Integer.getInteger("artifactural.blockingThreads", Math.max(8, Runtime.getRuntime().availableProcessors() * 4)));
+
+    public static BlockingExecutor shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param name Prefix of the thread names
+     * @param platformThreads Size of the pool used when virtual threads are not available
+     */
+    public static BlockingExecutor create(String name, int platformThreads) {
+        ThreadFactory virtual = "false".equals(System.getProperty("artifactural.virtualThreads")) ? null : virtualThreadFactory(name);
+        if (virtual != null)
+            return new BlockingExecutor(runnable -> virtual.newThread(runnable).start(), true);
+
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(platformThreads, platformThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return new BlockingExecutor(pool, false);
+    }
+
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            // Go through the public interface, the builder implementation class is not accessible
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method setName = builderClass.getMethod("name", String.class, long.class);
+            builder = setName.invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private final Executor executor;
+    private final boolean virtual;
+
+    private BlockingExecutor(Executor executor, boolean virtual) {
+        this.executor = executor;
+        this.virtual = virtual;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingExecutor(" + (virtual ? "virtual" : "platform") + ")";
+    }
+}
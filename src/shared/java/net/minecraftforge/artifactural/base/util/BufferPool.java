@@ -0,0 +1,238 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.util;
+
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out direct buffers for file channel I/O, so large copies don't churn through the heap of the Gradle daemon.
+ * Direct memory is capped, once the cap is reached buffers are allocated on the heap instead.
+ *
+ * <p>Short lived buffers come from {@link #lease()} and go back to the pool when the lease is closed.
+ * Data that comes from or goes to a stream passes through a heap array either way, so {@link #leaseHeap()} hands out pooled heap buffers for that.
+ * A lease that is garbage collected without being closed is counted as a leak, and with {@code trackLeaks}
+ * the place it was leased from is kept, see {@link #getLastLeak()}.
+ * Buffers from {@link #allocate(int)} are not pooled, their memory is given back to the cap once they are collected.</p>
+ *
+ * <p>The shared pool reads its cap from the {@code artifactural.bufferPool.maxDirectBytes} system property,
+ * and enables leak tracking with {@code artifactural.bufferPool.trackLeaks}.</p>
+ */
+public class BufferPool {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_IDLE_HEAP = 16;
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_BUFFER_SIZE,
+            Long.getLong("artifactural.bufferPool.maxDirectBytes", 64L << 20),
+            Boolean.getBoolean("artifactural.bufferPool.trackLeaks"));
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    private final int bufferSize;
+    private final long maxDirectBytes;
+    private final boolean trackLeaks;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+    private final Queue<ByteBuffer> freeHeap = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeHeapCount = new AtomicInteger();
+    private final AtomicLong directBytes = new AtomicLong();
+    private final AtomicLong leaked = new AtomicLong();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    // Keeps the references themselves reachable until they are enqueued or cleared
+    private final Map<Tracked, Boolean> tracked = new ConcurrentHashMap<>();
+    private volatile Throwable lastLeak;
+
+    public BufferPool(int bufferSize, long maxDirectBytes, boolean trackLeaks) {
+        this.bufferSize = bufferSize;
+        this.maxDirectBytes = maxDirectBytes;
+        this.trackLeaks = trackLeaks;
+    }
+
+    /**
+     * Leases a buffer of the pool's buffer size, cleared and ready to be filled. It must be closed when done.
+     */
+    public Lease lease() {
+        expunge();
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            freeCount.decrementAndGet();
+        } else {
+            buffer = reserve(bufferSize);
+        }
+        Lease lease = new Lease(buffer);
+        lease.tracker = new Tracked(lease, buffer.isDirect() ? buffer.capacity() : 0, true,
+                trackLeaks ? new Throwable("Buffer leased here") : null);
+        return lease;
+    }
+
+    /**
+     * Leases a heap buffer of the pool's buffer size, for copies from or to streams, where {@link ByteBuffer#array()} can be used directly.
+     * It must be closed when done.
+     */
+    public Lease leaseHeap() {
+        expunge();
+        ByteBuffer buffer = freeHeap.poll();
+        if (buffer != null) {
+            freeHeapCount.decrementAndGet();
+        } else {
+            buffer = ByteBuffer.allocate(bufferSize);
+        }
+        Lease lease = new Lease(buffer);
+        lease.tracker = new Tracked(lease, 0, true, trackLeaks ? new Throwable("Buffer leased here") : null);
+        return lease;
+    }
+
+    /**
+     * Allocates a buffer of the given size that belongs to the caller, for data that has to stay in memory for a while.
+     */
+    public ByteBuffer allocate(int size) {
+        expunge();
+        ByteBuffer buffer = reserve(size);
+        if (buffer.isDirect())
+            new Tracked(buffer, size, false, null);
+        return buffer;
+    }
+
+    private ByteBuffer reserve(int size) {
+        long current;
+        do {
+            current = directBytes.get();
+            if (current + size > maxDirectBytes) {
+                Metrics.get().counter("bufferPool.heapFallback").increment();
+                return ByteBuffer.allocate(size);
+            }
+        } while (!directBytes.compareAndSet(current, current + size));
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    private void release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            if (buffer.capacity() != bufferSize)
+                return;
+            if (freeHeapCount.incrementAndGet() <= MAX_IDLE_HEAP) {
+                buffer.clear();
+                freeHeap.offer(buffer);
+            } else {
+                freeHeapCount.decrementAndGet();
+            }
+            return;
+        }
+        // Only keep as many idle buffers as the cap could hold, the rest is left to the garbage collector
+        if (freeCount.incrementAndGet() * (long) bufferSize <= maxDirectBytes) {
+            buffer.clear();
+            free.offer(buffer);
+        } else {
+            freeCount.decrementAndGet();
+            directBytes.addAndGet(-buffer.capacity());
+        }
+    }
+
+    private void expunge() {
+        Reference<?> ref;
+        while ((ref = queue.poll()) != null) {
+            Tracked tracker = (Tracked) ref;
+            if (tracked.remove(tracker) == null)
+                continue;
+            directBytes.addAndGet(-tracker.size);
+            if (tracker.lease) {
+                leaked.incrementAndGet();
+                Metrics.get().counter("bufferPool.leaked").increment();
+                if (tracker.site != null)
+                    lastLeak = tracker.site;
+            }
+        }
+    }
+
+    /**
+     * @return Direct memory currently held by this pool, in use or idle
+     */
+    public long getDirectBytes() {
+        expunge();
+        return directBytes.get();
+    }
+
+    public long getLeakCount() {
+        expunge();
+        return leaked.get();
+    }
+
+    /**
+     * @return Where the most recently detected leak was leased, or null if there was none or leaks are not tracked
+     */
+    public Throwable getLastLeak() {
+        expunge();
+        return lastLeak;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool(" + bufferSize + ", " + directBytes.get() + "/" + maxDirectBytes + ")";
+    }
+
+    private class Tracked extends PhantomReference<Object> {
+        private final long size;
+        private final boolean lease;
+        private final Throwable site;
+
+        private Tracked(Object referent, long size, boolean lease, Throwable site) {
+            super(referent, queue);
+            this.size = size;
+            this.lease = lease;
+            this.site = site;
+            tracked.put(this, Boolean.TRUE);
+        }
+    }
+
+    public class Lease implements AutoCloseable {
+        private ByteBuffer buffer;
+        private Tracked tracker;
+
+        private Lease(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public ByteBuffer buffer() {
+            if (buffer == null)
+                throw new IllegalStateException("Lease already closed");
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            if (buffer == null)
+                return;
+            tracked.remove(tracker);
+            tracker.clear();
+            release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.util;
+
+import net.minecraftforge.artifactural.base.instrument.Metrics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Downloads a large file in several ranges at once, each written into its place in a preallocated file.
+ * Progress is saved next to the partial file, so an interrupted download continues where it stopped instead of starting over.
+ * The target only appears once everything is downloaded and, if a hash was given, verified.
+ *
+ * <p>Servers that don't support ranges, or files too small to be worth splitting, are downloaded in one request.
+ * So is a file whose server answers a range request with anything but {@code 206}, or that changed since the download started.</p>
+ */
+public class ChunkedDownload {
+    private static final int TIMEOUT = 30_000;
+    private static final long SAVE_INTERVAL = 1 << 20;
+    // Downloads run on the shared executor themselves, so their chunks get their own threads rather than queue behind them
+    private static final BlockingExecutor CHUNKS = BlockingExecutor.create("artifactural-download",
+            Integer.getInteger("artifactural.downloadThreads", 16));
+
+    public static ChunkedDownload of(URL url, File target) {
+        return new ChunkedDownload(url, target);
+    }
+
+    private final URL url;
+    private final File target;
+    private final File part;
+    private final File state;
+    private int chunks = 4;
+    private long minChunkSize = 8 << 20;
+    private Executor executor = CHUNKS;
+    private HashFunction hashFunction;
+    private String hash;
+
+    private ChunkedDownload(URL url, File target) {
+        this.url = url;
+        this.target = target;
+        this.part = new File(target.getPath() + ".part");
+        this.state = new File(target.getPath() + ".part.state");
+    }
+
+    public ChunkedDownload chunks(int chunks) {
+        this.chunks = Math.max(1, chunks);
+        return this;
+    }
+
+    /**
+     * Files are only split into as many chunks as leave each at least this large.
+     */
+    public ChunkedDownload minChunkSize(long minChunkSize) {
+        this.minChunkSize = Math.max(1, minChunkSize);
+        return this;
+    }
+
+    /**
+     * Runs the chunks, the calling thread waits for them. Must not be a bounded executor the download itself may run on.
+     */
+    public ChunkedDownload executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * The downloaded file must have this hash, or it is thrown away and the download fails.
+     */
+    public ChunkedDownload verify(HashFunction function, String hash) {
+        this.hashFunction = function;
+        this.hash = hash;
+        return this;
+    }
+
+    public File run() throws IOException {
+        target.getAbsoluteFile().getParentFile().mkdirs();
+        if (!(url.openConnection() instanceof HttpURLConnection)) {
+            try (InputStream is = url.openStream()) {
+                Files.copy(is, part.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return finish();
+        }
+
+        HttpURLConnection head = connect();
+        head.setRequestMethod("HEAD");
+        int code = head.getResponseCode();
+        if (code >= 400)
+            throw new IOException("Server returned " + code + " for " + url);
+        long length = head.getContentLengthLong();
+        String validator = head.getHeaderField("ETag");
+        if (validator == null)
+            validator = head.getHeaderField("Last-Modified");
+        boolean ranges = "bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"));
+        head.disconnect();
+        return download(length, validator, ranges);
+    }
+
+    /**
+     * Downloads without asking the server about the file first, for callers that already have the headers of a response for this URL.
+     *
+     * @param length    The Content-Length of the response
+     * @param validator The ETag of the response, or its Last-Modified if it has none, or null
+     * @param ranges    Whether the response had {@code Accept-Ranges: bytes}
+     */
+    public File run(long length, String validator, boolean ranges) throws IOException {
+        target.getAbsoluteFile().getParentFile().mkdirs();
+        return download(length, validator, ranges);
+    }
+
+    private File download(long length, String validator, boolean ranges) throws IOException {
+        int count = (int) Math.max(1, Math.min(chunks, length / minChunkSize));
+        if (length <= 0 || !ranges || count == 1) {
+            single();
+        } else {
+            ranged(length, validator, count);
+        }
+        return finish();
+    }
+
+    private File finish() throws IOException {
+        if (hashFunction != null) {
+            String actual = hashFunction.hash(part);
+            if (!actual.equalsIgnoreCase(hash)) {
+                Files.deleteIfExists(part.toPath());
+                Files.deleteIfExists(state.toPath());
+                throw new IOException("Hash mismatch for " + url + ", expected " + hash + " but got " + actual);
+            }
+        }
+        Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(state.toPath());
+        return target;
+    }
+
+    private void single() throws IOException {
+        Files.deleteIfExists(state.toPath());
+        HttpURLConnection connection = connect();
+        int code = connection.getResponseCode();
+        if (code >= 400)
+            throw new IOException("Server returned " + code + " for " + url);
+        try (InputStream is = connection.getInputStream()) {
+            Files.copy(is, part.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void ranged(long length, String validator, int count) throws IOException {
+        if (!rangedOrFallback(length, validator, count)) {
+            Metrics.get().counter("download.rangeFallback").increment();
+            Files.deleteIfExists(state.toPath());
+            single();
+        }
+    }
+
+    /**
+     * @return {@code false} if the server didn't answer a range with a range, so nothing downloaded so far can be trusted
+     */
+    private boolean rangedOrFallback(long length, String validator, int count) throws IOException {
+        long[] starts = new long[count + 1];
+        for (int x = 0; x < count; x++)
+            starts[x] = length / count * x;
+        starts[count] = length;
+
+        AtomicLongArray done = new AtomicLongArray(count);
+        Properties props = loadState(length, validator, count);
+        if (props != null && part.length() == length) {
+            for (int x = 0; x < count; x++)
+                done.set(x, Long.parseLong(props.getProperty("chunk." + x, "0")));
+            Metrics.get().counter("download.resumed").increment();
+        } else {
+            Files.deleteIfExists(state.toPath());
+            try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // Preallocate, so each chunk can write at its offset right away
+                channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.WRITE)) {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+            for (int x = 0; x < count; x++) {
+                int chunk = x;
+                futures[x] = CompletableFuture.runAsync(() -> {
+                    try {
+                        chunk(channel, chunk, starts[chunk], starts[chunk + 1], done, validator, length);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+            }
+            try {
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof NotPartialException)
+                    return false;
+                saveState(channel, length, validator, done);
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw e;
+            }
+            channel.force(false);
+        }
+        return true;
+    }
+
+    private void chunk(FileChannel channel, int chunk, long start, long end, AtomicLongArray done, String validator, long length) throws IOException {
+        long position = start + done.get(chunk);
+        if (position >= end)
+            return;
+
+        HttpURLConnection connection = connect();
+        connection.setRequestProperty("Range", "bytes=" + position + "-" + (end - 1));
+        if (validator != null)
+            connection.setRequestProperty("If-Range", validator);
+        int code = connection.getResponseCode();
+        if (code != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            if (code >= 400)
+                throw new IOException("Server returned " + code + " for range " + position + "-" + (end - 1) + " of " + url);
+            // A 200 means the ranges are ignored, or the file changed since we started, either way the partial file is useless
+            throw new NotPartialException();
+        }
+
+        long unsaved = 0;
+        // The response is a stream, so read into a heap array rather than have a channel adapter copy it into a direct buffer
+        try (InputStream in = connection.getInputStream();
+             BufferPool.Lease lease = BufferPool.shared().leaseHeap()) {
+            ByteBuffer buffer = lease.buffer();
+            byte[] data = buffer.array();
+            while (position < end) {
+                int read = in.read(data, 0, (int) Math.min(data.length, end - position));
+                if (read == -1)
+                    break;
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    int written = channel.write(buffer, position);
+                    position += written;
+                    unsaved += written;
+                }
+                done.set(chunk, position - start);
+                if (unsaved >= SAVE_INTERVAL) {
+                    saveState(channel, length, validator, done);
+                    unsaved = 0;
+                }
+            }
+        }
+        if (position < end)
+            throw new IOException("Connection closed " + (end - position) + " bytes early for " + url);
+    }
+
+    private Properties loadState(long length, String validator, int count) throws IOException {
+        if (!state.exists() || !part.exists())
+            return null;
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(state)) {
+            props.load(is);
+        }
+        boolean matches = url.toString().equals(props.getProperty("url"))
+                && Long.toString(length).equals(props.getProperty("length"))
+                && Integer.toString(count).equals(props.getProperty("chunks"))
+                && validator != null && validator.equals(props.getProperty("validator"));
+        return matches ? props : null;
+    }
+
+    private synchronized void saveState(FileChannel channel, long length, String validator, AtomicLongArray done) throws IOException {
+        if (validator == null)
+            return; // Without a validator we can't tell if a later resume would mix two versions of the file
+        // Take the progress before forcing, every byte it counts was written by then, so the state never claims more than is on disk
+        long[] snapshot = new long[done.length()];
+        for (int x = 0; x < snapshot.length; x++)
+            snapshot[x] = done.get(x);
+        channel.force(false);
+        Properties props = new Properties();
+        props.setProperty("url", url.toString());
+        props.setProperty("length", Long.toString(length));
+        props.setProperty("chunks", Integer.toString(done.length()));
+        props.setProperty("validator", validator);
+        for (int x = 0; x < snapshot.length; x++)
+            props.setProperty("chunk." + x, Long.toString(snapshot[x]));
+        File tmp = new File(state.getPath() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+            props.store(os, null);
+        }
+        Files.move(tmp.toPath(), state.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static class NotPartialException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private NotPartialException() {
+            super("Range request not answered with 206");
+        }
+    }
+
+    private HttpURLConnection connect() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkedDownload(" + url + ", " + target + ")";
+    }
+}
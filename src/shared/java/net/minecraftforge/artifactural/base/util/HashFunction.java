@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -62,23 +63,24 @@ public enum HashFunction {
     }
 
     public String hash(File file) throws IOException {
-        try (FileInputStream fin = new FileInputStream(file)) {
-            return hash(fin);
+        MessageDigest hash = get();
+        try (FileInputStream fin = new FileInputStream(file);
+             BufferPool.Lease lease = BufferPool.shared().lease()) {
+            update(hash, fin.getChannel(), lease.buffer());
         }
+        return pad(new BigInteger(1, hash.digest()).toString(16));
     }
 
     public String hash(Iterable<File> files) throws IOException {
         MessageDigest hash = get();
-        byte[] buf = new byte[1024];
-
-        for (File file : files) {
-            if (!file.exists())
-                continue;
-
-            try (FileInputStream fin = new FileInputStream(file)) {
-                int count = -1;
-                while ((count = fin.read(buf)) != -1)
-                    hash.update(buf, 0, count);
+        try (BufferPool.Lease lease = BufferPool.shared().lease()) {
+            for (File file : files) {
+                if (!file.exists())
+                    continue;
+
+                try (FileInputStream fin = new FileInputStream(file)) {
+                    update(hash, fin.getChannel(), lease.buffer());
+                }
             }
         }
         return pad(new BigInteger(1, hash.digest()).toString(16));
@@ -89,14 +91,25 @@ public enum HashFunction {
     }
 
     public String hash(InputStream stream) throws IOException {
+        // A stream can only fill a heap array, going through a direct buffer would only add copies
         MessageDigest hash = get();
-        byte[] buf = new byte[1024];
-        int count = -1;
-        while ((count = stream.read(buf)) != -1)
-            hash.update(buf, 0, count);
+        try (BufferPool.Lease lease = BufferPool.shared().leaseHeap()) {
+            byte[] buffer = lease.buffer().array();
+            int read;
+            while ((read = stream.read(buffer)) != -1)
+                hash.update(buffer, 0, read);
+        }
         return pad(new BigInteger(1, hash.digest()).toString(16));
     }
 
+    private static void update(MessageDigest hash, FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            hash.update(buffer);
+            buffer.clear();
+        }
+    }
+
     public String hash(byte[] data) {
         return pad(new BigInteger(1, get().digest(data)).toString(16));
     }
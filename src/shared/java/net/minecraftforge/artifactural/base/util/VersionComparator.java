@@ -0,0 +1,123 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders versions the way Maven does, close enough for listing them: {@code 1.2 < 1.10}, {@code 1.0-rc1 < 1.0 < 1.0-sp1}, and {@code 1.0 == 1.0.0}.
+ * Versions are split into numbers and words at separators and where digits and letters meet.
+ */
+public class VersionComparator implements Comparator<String> {
+    public static final VersionComparator INSTANCE = new VersionComparator();
+
+    // Known qualifiers from oldest to newest, the empty string is a plain release. Anything else comes after these.
+    private static final List<String> QUALIFIERS = Arrays.asList("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+
+    private VersionComparator() {
+    }
+
+    @Override
+    public int compare(String a, String b) {
+        List<String> left = split(a);
+        List<String> right = split(b);
+        for (int x = 0; x < Math.max(left.size(), right.size()); x++) {
+            int ret = compareItem(x < left.size() ? left.get(x) : null, x < right.size() ? right.get(x) : null);
+            if (ret != 0)
+                return ret;
+        }
+        return 0;
+    }
+
+    private static List<String> split(String version) {
+        List<String> ret = new ArrayList<>();
+        StringBuilder buf = new StringBuilder();
+        for (int x = 0; x < version.length(); x++) {
+            char c = version.charAt(x);
+            if (c == '.' || c == '-' || c == '_' || c == '+') {
+                ret.add(buf.toString());
+                buf.setLength(0);
+                continue;
+            }
+            if (buf.length() > 0 && Character.isDigit(c) != Character.isDigit(buf.charAt(buf.length() - 1))) {
+                ret.add(buf.toString());
+                buf.setLength(0);
+            }
+            buf.append(Character.toLowerCase(c));
+        }
+        ret.add(buf.toString());
+        return ret;
+    }
+
+    /**
+     * A missing item counts as {@code 0} against a number and as a plain release against a word.
+     */
+    private static int compareItem(String a, String b) {
+        boolean numA = a != null && isNumber(a);
+        boolean numB = b != null && isNumber(b);
+        if (numA && numB)
+            return compareNumbers(a, b);
+        if (numA)
+            return b == null ? compareNumbers(a, "0") : 1;
+        if (numB)
+            return a == null ? compareNumbers("0", b) : -1;
+        return compareWords(a == null ? "" : a, b == null ? "" : b);
+    }
+
+    private static boolean isNumber(String item) {
+        return !item.isEmpty() && Character.isDigit(item.charAt(0));
+    }
+
+    private static int compareNumbers(String a, String b) {
+        a = stripZeros(a);
+        b = stripZeros(b);
+        return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+    }
+
+    private static String stripZeros(String number) {
+        int x = 0;
+        while (x < number.length() - 1 && number.charAt(x) == '0')
+            x++;
+        return number.substring(x);
+    }
+
+    private static int compareWords(String a, String b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        return rankA != rankB ? Integer.compare(rankA, rankB) : a.compareTo(b);
+    }
+
+    private static int rank(String word) {
+        switch (word) {
+            case "a": return QUALIFIERS.indexOf("alpha");
+            case "b": return QUALIFIERS.indexOf("beta");
+            case "m": return QUALIFIERS.indexOf("milestone");
+            case "cr": return QUALIFIERS.indexOf("rc");
+            case "ga":
+            case "final":
+            case "release": return QUALIFIERS.indexOf("");
+        }
+        int ret = QUALIFIERS.indexOf(word);
+        return ret == -1 ? QUALIFIERS.size() : ret;
+    }
+}
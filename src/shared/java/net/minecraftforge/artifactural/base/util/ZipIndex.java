@@ -0,0 +1,322 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of a zip file through a {@link SeekableByteChannel}, without touching the entry data.
+ * Entries can then be read individually with {@link #openRaw(SeekableByteChannel, Entry)}.
+ */
+public class ZipIndex {
+    private static final int EOCD_SIG = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIG = 0x06064b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private final Map<String, Entry> entries;
+
+    private ZipIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static ZipIndex read(SeekableByteChannel channel) throws IOException {
+        long size = channel.size();
+        int tail = (int) Math.min(size, EOCD_SIZE + MAX_COMMENT);
+        ByteBuffer buf = readFully(channel, size - tail, tail);
+
+        int eocd = -1;
+        for (int x = tail - EOCD_SIZE; x >= 0; x--) {
+            if (buf.getInt(x) == EOCD_SIG) {
+                eocd = x;
+                break;
+            }
+        }
+        if (eocd == -1)
+            throw new ZipException("End of central directory not found");
+
+        long count = buf.getShort(eocd + 10) & 0xFFFF;
+        long cenSize = buf.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long cenOffset = buf.getInt(eocd + 16) & 0xFFFFFFFFL;
+
+        long eocdPosition = size - tail + eocd;
+        if ((count == 0xFFFF || cenSize == 0xFFFFFFFFL || cenOffset == 0xFFFFFFFFL) && eocdPosition >= ZIP64_LOCATOR_SIZE) {
+            ByteBuffer locator = readFully(channel, eocdPosition - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIG) {
+                ByteBuffer zip64 = readFully(channel, locator.getLong(8), 56);
+                if (zip64.getInt(0) != ZIP64_EOCD_SIG)
+                    throw new ZipException("Invalid zip64 end of central directory");
+                count = zip64.getLong(32);
+                cenSize = zip64.getLong(40);
+                cenOffset = zip64.getLong(48);
+            }
+        }
+
+        if (cenSize > Integer.MAX_VALUE)
+            throw new ZipException("Central directory too large: " + cenSize);
+        if (cenOffset < 0 || cenOffset + cenSize > size)
+            throw new ZipException("Central directory outside of the file: " + cenOffset + "+" + cenSize);
+        ByteBuffer cen = readFully(channel, cenOffset, (int) cenSize);
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int pos = 0;
+        for (long x = 0; x < count; x++) {
+            if (pos + CEN_SIZE > cen.limit() || cen.getInt(pos) != CEN_SIG)
+                throw new ZipException("Invalid central directory entry at " + (cenOffset + pos));
+            int madeBy = cen.getShort(pos + 4) & 0xFFFF;
+            int flags = cen.getShort(pos + 8) & 0xFFFF;
+            int method = cen.getShort(pos + 10) & 0xFFFF;
+            int time = cen.getInt(pos + 12);
+            int crc = cen.getInt(pos + 16);
+            long compressed = cen.getInt(pos + 20) & 0xFFFFFFFFL;
+            long uncompressed = cen.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLen = cen.getShort(pos + 28) & 0xFFFF;
+            int extraLen = cen.getShort(pos + 30) & 0xFFFF;
+            int commentLen = cen.getShort(pos + 32) & 0xFFFF;
+            if (pos + CEN_SIZE + nameLen + extraLen + commentLen > cen.limit())
+                throw new ZipException("Central directory entry at " + (cenOffset + pos) + " runs past the central directory");
+            int attributes = cen.getInt(pos + 38);
+            long offset = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLen];
+            cen.position(pos + CEN_SIZE);
+            cen.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // Zip64 extended information, only present for the values that overflowed, in this order
+            int extra = pos + CEN_SIZE + nameLen;
+            int extraEnd = extra + extraLen;
+            while (extra + 4 <= extraEnd) {
+                int id = cen.getShort(extra) & 0xFFFF;
+                int len = cen.getShort(extra + 2) & 0xFFFF;
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    int end = Math.min(field + len, extraEnd);
+                    if (uncompressed == 0xFFFFFFFFL && field + 8 <= end) { uncompressed = cen.getLong(field); field += 8; }
+                    if (compressed == 0xFFFFFFFFL && field + 8 <= end) { compressed = cen.getLong(field); field += 8; }
+                    if (offset == 0xFFFFFFFFL && field + 8 <= end) { offset = cen.getLong(field); }
+                }
+                extra += 4 + len;
+            }
+
+            entries.put(name, new Entry(name, madeBy, flags, method, time, crc, compressed, uncompressed, attributes, offset));
+            pos += CEN_SIZE + nameLen + extraLen + commentLen;
+        }
+        return new ZipIndex(Collections.unmodifiableMap(entries));
+    }
+
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @return All entries, in central directory order
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Finds where the entry data starts, this has to read the local header as its extra field may differ from the central directory.
+     */
+    public static long dataOffset(SeekableByteChannel channel, Entry entry) throws IOException {
+        ByteBuffer loc = readFully(channel, entry.getLocalHeaderOffset(), LOC_SIZE);
+        if (loc.getInt(0) != LOC_SIG)
+            throw new ZipException("Invalid local header for " + entry.getName());
+        int nameLen = loc.getShort(26) & 0xFFFF;
+        int extraLen = loc.getShort(28) & 0xFFFF;
+        return entry.getLocalHeaderOffset() + LOC_SIZE + nameLen + extraLen;
+    }
+
+    /**
+     * Opens a stream over the entry data as it is stored, so still compressed if the method is {@link #DEFLATED}.
+     * The stream does not close the channel.
+     */
+    public static InputStream openRaw(SeekableByteChannel channel, Entry entry) throws IOException {
+        return new ChannelRegionInputStream(channel, dataOffset(channel, entry), entry.getCompressedSize());
+    }
+
+    static ByteBuffer readFully(SeekableByteChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(position);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) == -1)
+                throw new EOFException("Unexpected end of zip at " + (position + buf.position()));
+        }
+        buf.flip();
+        return buf;
+    }
+
+    public static class Entry {
+        private final String name;
+        private final int madeBy;
+        private final int flags;
+        private final int method;
+        private final int time;
+        private final int crc;
+        private final long compressedSize;
+        private final long size;
+        private final int externalAttributes;
+        private final long localHeaderOffset;
+
+        private Entry(String name, int madeBy, int flags, int method, int time, int crc, long compressedSize, long size, int externalAttributes, long localHeaderOffset) {
+            this.name = name;
+            this.madeBy = madeBy;
+            this.flags = flags;
+            this.method = method;
+            this.time = time;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.externalAttributes = externalAttributes;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        /**
+         * @return The "version made by" field, its high byte is the host system the external attributes are meant for
+         */
+        public int getVersionMadeBy() {
+            return madeBy;
+        }
+
+        /**
+         * @return Host specific attributes, for Unix hosts the file mode in the high 16 bits
+         */
+        public int getExternalAttributes() {
+            return externalAttributes;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        /**
+         * @return If general purpose flag bit 0 is set, the data can't be read without the password
+         */
+        public boolean isEncrypted() {
+            return (flags & 1) != 0;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        /**
+         * @return Modification time and date in MS-DOS format, time in the low 16 bits
+         */
+        public int getDosTime() {
+            return time;
+        }
+
+        public int getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        @Override
+        public String toString() {
+            return "ZipIndex.Entry(" + name + ", method=" + method + ", size=" + size + ", compressed=" + compressedSize + ")";
+        }
+    }
+
+    private static class ChannelRegionInputStream extends InputStream {
+        private final SeekableByteChannel channel;
+        private long position;
+        private long remaining;
+
+        private ChannelRegionInputStream(SeekableByteChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0)
+                return -1;
+            ByteBuffer buf = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+            channel.position(position);
+            int read = channel.read(buf);
+            if (read == -1)
+                throw new EOFException("Unexpected end of zip entry data");
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, remaining));
+            position += skipped;
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+    }
+}
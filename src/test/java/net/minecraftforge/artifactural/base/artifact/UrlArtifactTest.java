@@ -0,0 +1,252 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.artifact;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.cache.LocatedArtifactCache;
+import net.minecraftforge.artifactural.base.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlArtifactTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @TempDir
+    File dir;
+
+    private HttpServer server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile byte[] data;
+    private volatile String etag;
+    private volatile boolean ranges;
+    private volatile boolean ignoreRanges;
+
+    @BeforeEach
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        requests.add(exchange.getRequestMethod() + (range != null ? " " + range : "") + (ifNoneMatch != null ? " " + ifNoneMatch : ""));
+
+        if (etag != null)
+            exchange.getResponseHeaders().set("ETag", etag);
+        if (ranges)
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if (etag != null && etag.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        int start = 0;
+        int end = data.length;
+        int code = 200;
+        Matcher matcher = range == null || !ranges || ignoreRanges ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches()) {
+            start = Integer.parseInt(matcher.group(1));
+            end = Integer.parseInt(matcher.group(2)) + 1;
+            code = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + data.length);
+        }
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        exchange.getResponseHeaders().set("Content-Length", Integer.toString(end - start));
+        exchange.sendResponseHeaders(code, head ? -1 : end - start);
+        if (!head) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(data, start, end - start);
+            } catch (IOException e) {
+                // The client may hang up early, when it only wanted the headers
+            }
+        }
+        exchange.close();
+    }
+
+    private Artifact.Cached artifact() throws IOException {
+        return artifact(null);
+    }
+
+    private Artifact.Cached artifact(String sha1) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/test.bin");
+        SimpleArtifactIdentifier identifier = new SimpleArtifactIdentifier("test", "test", "1", null, "bin");
+        Artifact artifact = sha1 == null ? UrlArtifact.of(identifier, ArtifactType.BINARY, url) : UrlArtifact.of(identifier, ArtifactType.BINARY, url, HashFunction.SHA1, sha1);
+        return artifact.cache(new LocatedArtifactCache(new File(dir, "cache")));
+    }
+
+    private static byte[] read(Artifact artifact) throws IOException {
+        try (InputStream is = artifact.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = is.read(buf)) != -1)
+                out.write(buf, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] random(int size) {
+        byte[] ret = new byte[size];
+        new Random(size).nextBytes(ret);
+        return ret;
+    }
+
+    @Test
+    public void downloadsThroughTheCache() throws IOException {
+        data = random(1024);
+        etag = "\"v1\"";
+        Artifact.Cached artifact = artifact();
+
+        File file = artifact.asFile();
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertTrue(new File(file.getPath() + ".integrity").exists(), "stored without an integrity record");
+        assertEquals(Arrays.asList("HEAD", "GET"), requests);
+    }
+
+    @Test
+    public void revalidatesOncePerInstance() throws IOException {
+        data = random(1024);
+        etag = "\"v1\"";
+        Artifact.Cached artifact = artifact();
+        artifact.asFile();
+        requests.clear();
+
+        artifact.asFile();
+        read(artifact);
+        assertTrue(requests.isEmpty(), "sent " + requests);
+    }
+
+    @Test
+    public void revalidatesWithTheETag() throws IOException {
+        data = random(1024);
+        etag = "\"v1\"";
+        assertArrayEquals(data, read(artifact()));
+        requests.clear();
+
+        assertArrayEquals(data, read(artifact()));
+        assertEquals(Collections.singletonList("HEAD \"v1\""), requests);
+
+        byte[] changed = random(2048);
+        data = changed;
+        etag = "\"v2\"";
+        requests.clear();
+        assertArrayEquals(changed, read(artifact()));
+        assertEquals(Arrays.asList("HEAD \"v1\"", "GET"), requests);
+    }
+
+    @Test
+    public void keepsFilesWithoutValidators() throws IOException {
+        data = random(1024);
+        etag = null;
+        assertArrayEquals(data, read(artifact()));
+        requests.clear();
+        Artifact.Cached artifact = artifact();
+        assertArrayEquals(data, read(artifact));
+        assertTrue(artifact.isPresent());
+        assertTrue(requests.isEmpty(), "downloaded again without anything to revalidate against: " + requests);
+    }
+
+    @Test
+    public void presenceOfACachedFileNeedsNoRequest() throws IOException {
+        data = random(16);
+        etag = "\"v1\"";
+        Artifact.Cached artifact = artifact();
+        artifact.asFile();
+        requests.clear();
+        assertTrue(artifact.isPresent());
+        assertTrue(requests.isEmpty(), "sent " + requests);
+    }
+
+    @Test
+    public void downloadsLargeFilesInRanges() throws IOException {
+        data = random(40 << 20);
+        etag = "\"big\"";
+        ranges = true;
+        Artifact.Cached artifact = artifact();
+
+        assertArrayEquals(data, Files.readAllBytes(artifact.asFile().toPath()));
+        assertEquals("HEAD", requests.get(0));
+        long ranged = requests.stream().filter(r -> r.startsWith("GET bytes=")).count();
+        assertTrue(ranged > 1, "not split into ranges: " + requests);
+        assertEquals(1, requests.stream().filter(r -> r.startsWith("HEAD")).count(), "asked again with HEAD: " + requests);
+        assertTrue(requests.stream().noneMatch(r -> r.equals("GET")), "fetched the whole file too: " + requests);
+    }
+
+    @Test
+    public void fallsBackToOneRequestWithoutPartialResponses() throws IOException {
+        data = random(40 << 20);
+        etag = "\"big\"";
+        ranges = true;
+        ignoreRanges = true;
+        Artifact.Cached artifact = artifact(HashFunction.SHA1.hash(data));
+
+        assertArrayEquals(data, Files.readAllBytes(artifact.asFile().toPath()));
+        assertEquals("GET", requests.get(requests.size() - 1), "no plain request after the ranges failed: " + requests);
+    }
+
+    @Test
+    public void rejectsHashMismatches() throws IOException {
+        data = random(1024);
+        etag = "\"v1\"";
+        Artifact.Cached artifact = artifact(HashFunction.SHA1.hash(random(16)));
+
+        IOException e = assertThrows(IOException.class, artifact::asFile);
+        assertTrue(e.getMessage().startsWith("Hash mismatch"), e.getMessage());
+        assertFalse(artifact.getFileLocation().exists(), "stored despite the mismatch");
+
+        Artifact.Cached valid = artifact(HashFunction.SHA1.hash(data));
+        assertArrayEquals(data, read(valid));
+    }
+}
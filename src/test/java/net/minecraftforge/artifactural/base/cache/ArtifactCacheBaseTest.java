@@ -0,0 +1,140 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArtifactCacheBaseTest {
+    private static final byte[] TEXT = repeat("plain text compresses well\n", 1000);
+    private static final byte[] ZIP = { 'P', 'K', 3, 4, 1, 2, 3, 4, 5, 6, 7, 8 };
+
+    @TempDir
+    File dir;
+
+    private final AtomicInteger opens = new AtomicInteger();
+
+    private static byte[] repeat(String line, int times) {
+        StringBuilder buf = new StringBuilder();
+        for (int x = 0; x < times; x++)
+            buf.append(line);
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Artifact artifact(String name, String extension, byte[] data) {
+        return StreamableArtifact.ofStreamable(new SimpleArtifactIdentifier("g", name, "1", null, extension), ArtifactType.OTHER, () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(data);
+        });
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int read;
+            while ((read = in.read(buf)) != -1)
+                out.write(buf, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private LocatedArtifactCache cache(boolean compressed) {
+        LocatedArtifactCache cache = new LocatedArtifactCache(new File(dir, "cache"));
+        cache.setCompressed(compressed);
+        return cache;
+    }
+
+    @Test
+    public void storesTextDeflated() throws Exception {
+        LocatedArtifactCache cache = cache(true);
+        Artifact artifact = artifact("text", "txt", TEXT);
+        assertArrayEquals(TEXT, read(cache.store(artifact).openStream()));
+
+        File path = cache.getPath(artifact);
+        File packed = ArtifactCacheBase.packed(path);
+        assertFalse(path.exists(), "plain file written in compressed mode");
+        assertTrue(packed.exists());
+        assertTrue(packed.length() < TEXT.length / 10, "packed copy isn't deflated");
+
+        assertArrayEquals(TEXT, read(cache(true).store(artifact).openStream()));
+        assertEquals(1, opens.get(), "packed copy wasn't reused");
+    }
+
+    @Test
+    public void storesCompressedContentPlain() throws Exception {
+        LocatedArtifactCache cache = cache(true);
+        // Not a known archive extension, so only the magic tells it apart
+        Artifact artifact = artifact("zip", "bin", ZIP);
+        assertArrayEquals(ZIP, read(cache.store(artifact).openStream()));
+
+        File path = cache.getPath(artifact);
+        assertTrue(path.exists());
+        assertFalse(ArtifactCacheBase.packed(path).exists(), "zip was deflated again");
+        assertArrayEquals(ZIP, Files.readAllBytes(path.toPath()));
+    }
+
+    @Test
+    public void replacesPackedCopyWithFile() throws Exception {
+        LocatedArtifactCache cache = cache(true);
+        Artifact artifact = artifact("text", "txt", TEXT);
+        read(cache.store(artifact).openStream());
+        File packed = ArtifactCacheBase.packed(cache.getPath(artifact));
+
+        File file = cache.store(artifact).asFile();
+        assertArrayEquals(TEXT, Files.readAllBytes(file.toPath()));
+        assertFalse(packed.exists(), "packed copy left behind");
+        assertFalse(ArtifactCacheBase.record(packed).exists(), "record of the packed copy left behind");
+        assertEquals(1, opens.get(), "file wasn't made from the packed copy");
+
+        assertArrayEquals(TEXT, read(cache.store(artifact).openStream()));
+        assertFalse(packed.exists(), "plain file was packed again");
+        assertEquals(1, opens.get());
+    }
+
+    @Test
+    public void storesPlainWhenNotCompressed() throws Exception {
+        LocatedArtifactCache cache = cache(false);
+        Artifact artifact = artifact("text", "txt", TEXT);
+        assertArrayEquals(TEXT, read(cache.store(artifact).openStream()));
+
+        File path = cache.getPath(artifact);
+        assertArrayEquals(TEXT, Files.readAllBytes(path.toPath()));
+        assertFalse(ArtifactCacheBase.packed(path).exists());
+    }
+}
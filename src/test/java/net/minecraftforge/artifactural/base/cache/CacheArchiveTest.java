@@ -0,0 +1,152 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheArchiveTest {
+    private static final byte[] TEXT = repeat("plain text compresses well\n", 1000);
+    private static final byte[] ZIP = { 'P', 'K', 3, 4, 1, 2, 3, 4, 5, 6, 7, 8 };
+
+    @TempDir
+    File dir;
+
+    private final AtomicInteger opens = new AtomicInteger();
+
+    private static byte[] repeat(String line, int times) {
+        StringBuilder buf = new StringBuilder();
+        for (int x = 0; x < times; x++)
+            buf.append(line);
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Artifact artifact(String name, String extension, byte[] data) {
+        return StreamableArtifact.ofStreamable(new SimpleArtifactIdentifier("g", name, "1", null, extension), ArtifactType.OTHER, () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(data);
+        });
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int read;
+            while ((read = in.read(buf)) != -1)
+                out.write(buf, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private File exportCache() throws IOException {
+        File root = new File(dir, "source");
+        LocatedArtifactCache cache = new LocatedArtifactCache(root);
+        cache.setCompressed(true);
+        read(cache.store(artifact("text", "txt", TEXT)).openStream());
+        read(cache.store(artifact("zip", "jar", ZIP)).openStream());
+        assertTrue(ArtifactCacheBase.packed(cache.getPath(artifact("text", "txt", TEXT))).exists(), "Text is stored deflated");
+
+        File archive = new File(dir, "cache.bin");
+        CacheArchive.export(root, archive);
+        opens.set(0);
+        return archive;
+    }
+
+    @Test
+    public void servesPlainAndPackedEntries() throws IOException {
+        File archive = exportCache();
+        try (CacheArchive opened = CacheArchive.open(archive)) {
+            ArchivedArtifactCache cache = new ArchivedArtifactCache(new File(dir, "target"), opened);
+            assertArrayEquals(TEXT, read(cache.store(artifact("text", "txt", TEXT)).openStream()));
+            assertArrayEquals(ZIP, read(cache.store(artifact("zip", "jar", ZIP)).openStream()));
+            File file = cache.store(artifact("text", "txt", TEXT)).asFile();
+            assertArrayEquals(TEXT, Files.readAllBytes(file.toPath()));
+            assertEquals(0, opens.get(), "Everything came out of the archive");
+        }
+    }
+
+    @Test
+    public void extractsTheSameTree() throws IOException {
+        File archive = exportCache();
+        File target = new File(dir, "extracted");
+        try (CacheArchive opened = CacheArchive.open(archive)) {
+            opened.extract(target);
+            for (String name : opened.getNames())
+                assertArrayEquals(Files.readAllBytes(new File(dir, "source/" + name).toPath()), Files.readAllBytes(new File(target, name).toPath()), name);
+        }
+        LocatedArtifactCache cache = new LocatedArtifactCache(target);
+        cache.setCompressed(true);
+        assertArrayEquals(TEXT, read(cache.store(artifact("text", "txt", TEXT)).openStream()));
+        assertEquals(0, opens.get());
+    }
+
+    @Test
+    public void recomputesEntriesFailingTheirRecord() throws IOException {
+        File root = new File(dir, "source");
+        LocatedArtifactCache source = new LocatedArtifactCache(root);
+        File path = source.store(artifact("zip", "jar", ZIP)).asFile();
+        Files.write(ArtifactCacheBase.record(path).toPath(), "12 0000".getBytes(StandardCharsets.UTF_8));
+        File archive = new File(dir, "cache.bin");
+        CacheArchive.export(root, archive);
+        opens.set(0);
+
+        try (CacheArchive opened = CacheArchive.open(archive)) {
+            ArchivedArtifactCache cache = new ArchivedArtifactCache(new File(dir, "target"), opened);
+            cache.setVerification(Verification.hash());
+            assertArrayEquals(ZIP, read(cache.store(artifact("zip", "jar", ZIP)).openStream()));
+            assertEquals(1, opens.get());
+        }
+    }
+
+    @Test
+    public void leavesOutBookkeeping() throws IOException {
+        File root = new File(dir, "source");
+        File path = new LocatedArtifactCache(root, "build").store(artifact("zip", "jar", ZIP)).asFile();
+        Files.write(new File(path.getParentFile(), "leftover.tmp").toPath(), new byte[1]);
+        File archive = new File(dir, "cache.bin");
+        CacheArchive.export(root, archive);
+
+        try (CacheArchive opened = CacheArchive.open(archive)) {
+            for (String name : opened.getNames()) {
+                assertFalse(name.startsWith(CacheReferences.REFERENCES), name);
+                assertFalse(name.endsWith(".tmp"), name);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactMetadata;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheReferencesTest {
+    private static final long OLD = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30);
+
+    @TempDir
+    File root;
+
+    private static Artifact artifact(String variant) {
+        return StreamableArtifact.ofBytes(new SimpleArtifactIdentifier("g", "n", "1", null, "jar"), ArtifactType.BINARY, new byte[] { 1, 2, 3 })
+                .withMetadata(new SimpleArtifactMetadata().with("variant", variant));
+    }
+
+    private File store(String build, String variant) throws IOException {
+        LocatedArtifactCache cache = new LocatedArtifactCache(root, build);
+        File file = cache.store(artifact(variant)).asFile();
+        return file.getParentFile().getParentFile();
+    }
+
+    private static void age(File file) throws IOException {
+        try (Stream<Path> stream = Files.walk(file.toPath())) {
+            stream.forEach(p -> p.toFile().setLastModified(OLD));
+        }
+    }
+
+    private File refs(String build) {
+        return new File(root, CacheReferences.REFERENCES + '/' + build + ".refs");
+    }
+
+    @Test
+    public void keepsVariantsOfRecentBuilds() throws IOException {
+        String older = "older-" + UUID.randomUUID();
+        String newer = "newer-" + UUID.randomUUID();
+        File first = store(older, "a");
+        File second = store(newer, "b");
+        age(first);
+        age(second);
+        refs(older).setLastModified(OLD);
+
+        CacheReferences.Result result = CacheReferences.collectGarbage(root, 1, 1, TimeUnit.DAYS);
+
+        assertEquals(2, result.getVariants());
+        assertEquals(1, result.getRemoved());
+        assertFalse(first.exists());
+        assertTrue(second.exists());
+        assertFalse(refs(older).exists(), "Expired builds are forgotten");
+        assertTrue(refs(newer).exists());
+    }
+
+    @Test
+    public void keepsYoungVariantsWithoutReferences() throws IOException {
+        String build = "build-" + UUID.randomUUID();
+        File young = store(build, "young");
+        File old = store(build, "old");
+        age(old);
+        Files.delete(refs(build).toPath());
+
+        CacheReferences.collectGarbage(root, 0, 1, TimeUnit.DAYS);
+
+        assertTrue(young.exists());
+        assertFalse(old.exists());
+    }
+
+    @Test
+    public void leavesDirectoriesWithoutRecordsAlone() throws IOException {
+        File foreign = new File(root, "some/other/dir/1.0");
+        foreign.mkdirs();
+        Files.write(new File(foreign, "file.jar").toPath(), new byte[] { 1 });
+        age(new File(root, "some"));
+
+        CacheReferences.Result result = CacheReferences.collectGarbage(root, 0, 1, TimeUnit.DAYS);
+
+        assertEquals(0, result.getVariants());
+        assertTrue(new File(foreign, "file.jar").exists());
+    }
+
+    @Test
+    public void sharesOneFilePerBuild() throws IOException {
+        String build = "shared-" + UUID.randomUUID();
+        store(build, "a");
+        store(build, "b");
+
+        assertEquals(1, new File(root, CacheReferences.REFERENCES).list().length);
+        assertEquals(2, Files.readAllLines(refs(build).toPath()).size());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.cache;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryArtifactCacheTest {
+    private static final int MAX_ENTRY = 100;
+
+    @TempDir
+    File dir;
+
+    private static byte[] data(char value, int size) {
+        byte[] ret = new byte[size];
+        Arrays.fill(ret, (byte) value);
+        return ret;
+    }
+
+    private static Artifact artifact(String name, byte[] data, AtomicInteger opens) {
+        return StreamableArtifact.ofStreamable(new SimpleArtifactIdentifier("g", name, "1", null, "pom"), ArtifactType.OTHER, () -> {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(data);
+        });
+    }
+
+    private static byte[] read(Artifact.Cached artifact) throws Exception {
+        try (InputStream in = artifact.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int read;
+            while ((read = in.read(buf)) != -1)
+                out.write(buf, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private MemoryArtifactCache cache(long maxTotal) {
+        return new MemoryArtifactCache(new LocatedArtifactCache(new File(dir, "cache")), MAX_ENTRY, maxTotal);
+    }
+
+    @Test
+    public void servesSmallArtifactsFromMemory() throws Exception {
+        MemoryArtifactCache cache = cache(MAX_ENTRY * 2);
+        AtomicInteger opens = new AtomicInteger();
+        byte[] data = data('a', MAX_ENTRY);
+        Artifact.Cached cached = cache.store(artifact("a", data, opens));
+
+        assertArrayEquals(data, read(cached));
+        assertArrayEquals(data, read(cached));
+        assertEquals(1, opens.get(), "second read didn't come from memory");
+        assertEquals(MAX_ENTRY, cache.getSize());
+        assertFalse(cached.getFileLocation().exists(), "file written before it was asked for");
+
+        File file = cached.asFile();
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(1, opens.get(), "file wasn't written from the held bytes");
+    }
+
+    @Test
+    public void passesLargeArtifactsToTheDelegate() throws Exception {
+        MemoryArtifactCache cache = cache(MAX_ENTRY * 2);
+        AtomicInteger opens = new AtomicInteger();
+        byte[] data = data('a', MAX_ENTRY * 50);
+        Artifact.Cached cached = cache.store(artifact("a", data, opens));
+
+        assertArrayEquals(data, read(cached));
+        assertEquals(0, cache.getSize());
+        assertTrue(cached.getFileLocation().exists(), "large artifact wasn't stored by the delegate");
+        assertArrayEquals(data, read(cached));
+        assertEquals(1, opens.get(), "large artifact was read from the source again");
+    }
+
+    @Test
+    public void admitsOnlyMoreFrequentArtifacts() throws Exception {
+        MemoryArtifactCache cache = cache(MAX_ENTRY * 2);
+        AtomicInteger aOpens = new AtomicInteger();
+        AtomicInteger bOpens = new AtomicInteger();
+        AtomicInteger cOpens = new AtomicInteger();
+        Artifact.Cached a = cache.store(artifact("a", data('a', MAX_ENTRY), aOpens));
+        Artifact.Cached b = cache.store(artifact("b", data('b', MAX_ENTRY), bOpens));
+        Artifact.Cached c = cache.store(artifact("c", data('c', MAX_ENTRY), cOpens));
+
+        read(a);
+        read(b);
+        assertEquals(MAX_ENTRY * 2, cache.getSize());
+
+        // Requested as often as the eldest entry, so it doesn't replace it
+        read(c);
+        read(a);
+        assertEquals(1, aOpens.get(), "rejected candidate evicted an entry");
+
+        // Now more popular than b, the least recently used entry
+        read(c);
+        read(c);
+        assertEquals(MAX_ENTRY * 2, cache.getSize());
+        assertEquals(2, cOpens.get(), "popular candidate wasn't admitted");
+        read(a);
+        assertEquals(1, aOpens.get(), "recently used entry was evicted");
+        read(b);
+        assertEquals(2, bOpens.get(), "least recently used entry wasn't evicted");
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.repository;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.repository.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RoutingRepositoryTest {
+    private final Repository all = repository();
+    private final Repository forge = repository();
+    private final Repository fml = repository();
+    private final Repository loader = repository();
+    private final Repository other = repository();
+
+    private static Repository repository(String... versions) {
+        return SimpleRepository.of(identifier -> Artifact.none(), (group, name) -> Arrays.asList(versions));
+    }
+
+    @Test
+    public void prefersModulesThenLongerGroups() {
+        RoutingRepository routing = RoutingRepository.builder()
+                .route("", all)
+                .route("net.minecraftforge", forge)
+                .route("net.minecraftforge.fml", fml)
+                .route("net.minecraftforge.fml", "loader", loader)
+                .route("net.minecraftforge.fml", other)
+                .build();
+
+        assertEquals(Arrays.asList(loader, fml, other, forge, all), routing.route("net.minecraftforge.fml", "loader"));
+        assertEquals(Arrays.asList(fml, other, forge, all), routing.route("net.minecraftforge.fml", "core"));
+        assertEquals(Arrays.asList(forge, all), routing.route("net.minecraftforge", "loader"));
+    }
+
+    @Test
+    public void groupsCoverSubgroupsOnly() {
+        RoutingRepository routing = RoutingRepository.builder()
+                .route("net.minecraftforge", forge)
+                .route("de.oceanlabs", "mcp", other)
+                .build();
+
+        assertEquals(Collections.singletonList(forge), routing.route("net.minecraftforge.fml.common", "core"));
+        assertTrue(routing.route("net.minecraftforgex", "core").isEmpty());
+        assertTrue(routing.route("net", "core").isEmpty());
+        assertTrue(routing.route("de.oceanlabs.mcp", "mcp").isEmpty());
+        assertTrue(routing.route("de.oceanlabs", "mcp_config").isEmpty());
+    }
+
+    @Test
+    public void builtRepositoriesDontSeeLaterRoutes() {
+        RoutingRepository.Builder builder = RoutingRepository.builder().route("net.minecraftforge", forge);
+        RoutingRepository first = builder.build();
+        builder.route("net.minecraftforge", other);
+
+        assertEquals(Collections.singletonList(forge), first.route("net.minecraftforge", "forge"));
+        assertEquals(1, first.getRoutes().size());
+        assertEquals(Arrays.asList(forge, other), builder.build().route("net.minecraftforge", "forge"));
+    }
+
+    @Test
+    public void mergesVersionsOfEveryRoute() {
+        Repository older = repository("1.0-rc1", "1.0", "1.2");
+        Repository newer = repository("1.2", "1.10", "1.0.1");
+        RoutingRepository routing = RoutingRepository.builder()
+                .route("net.minecraftforge", "forge", older)
+                .route("net.minecraftforge", newer)
+                .route("", repository())
+                .build();
+
+        List<String> versions = routing.listVersions("net.minecraftforge", "forge");
+        assertEquals(Arrays.asList("1.0-rc1", "1.0", "1.0.1", "1.2", "1.10"), versions);
+        // A single list is left in the repository's own order
+        assertEquals(Arrays.asList("b", "a"), RoutingRepository.builder().route("", repository("b", "a")).build().listVersions("g", "n"));
+    }
+}
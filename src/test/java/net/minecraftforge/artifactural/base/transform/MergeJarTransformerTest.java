@@ -0,0 +1,178 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.transform;
+
+import net.minecraftforge.artifactural.api.artifact.Artifact;
+import net.minecraftforge.artifactural.api.artifact.ArtifactType;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import net.minecraftforge.artifactural.base.artifact.StreamableArtifact;
+import net.minecraftforge.artifactural.base.util.ZipIndex;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MergeJarTransformerTest {
+    private static final int EXECUTABLE = 0100755 << 16;
+
+    private static Artifact jar(String name, String... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int x = 0; x < entries.length; x += 2) {
+                ZipEntry entry = new ZipEntry(entries[x]);
+                if (entries[x].startsWith("stored/")) {
+                    byte[] data = entries[x + 1].getBytes(StandardCharsets.UTF_8);
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(data.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(entries[x + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return StreamableArtifact.ofBytes(new SimpleArtifactIdentifier("test", name, "1", null, "jar"), ArtifactType.BINARY, out.toByteArray());
+    }
+
+    private static Map<String, String> read(Artifact artifact) throws IOException {
+        Map<String, String> ret = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(artifact.openStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null)
+                ret.put(entry.getName(), new String(readAll(zip), StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int read;
+        while ((read = in.read(buf)) != -1)
+            out.write(buf, 0, read);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void keepsTheFirstEntry() throws IOException {
+        Artifact merged = MergeJarTransformer.of(jar("b", "b.txt", "b", "same.txt", "from b"))
+                .transform(jar("a", "a.txt", "a", "same.txt", "from a", "stored/c.txt", "c"));
+
+        Map<String, String> entries = read(merged);
+        assertEquals("from a", entries.get("same.txt"));
+        assertEquals("a", entries.get("a.txt"));
+        assertEquals("b", entries.get("b.txt"));
+        assertEquals("c", entries.get("stored/c.txt"));
+        assertEquals(new ArrayList<>(new TreeMap<>(entries).keySet()), new ArrayList<>(entries.keySet()), "not in name order");
+    }
+
+    @Test
+    public void keepsTheLastEntry() throws IOException {
+        Artifact merged = MergeJarTransformer.of(jar("b", "same.txt", "from b"))
+                .conflict(MergeJarTransformer.Conflict.LAST)
+                .transform(jar("a", "same.txt", "from a"));
+
+        assertEquals("from b", read(merged).get("same.txt"));
+    }
+
+    @Test
+    public void failsOnDuplicates() throws IOException {
+        Artifact merged = MergeJarTransformer.of(jar("b", "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n", "same.txt", "from b"))
+                .conflict(MergeJarTransformer.Conflict.FAIL)
+                .transform(jar("a", "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n", "same.txt", "from a"));
+
+        assertThrows(ZipException.class, () -> read(merged));
+    }
+
+    @Test
+    public void allowsDuplicateManifestsWhenFailing() throws IOException {
+        Artifact merged = MergeJarTransformer.of(jar("b", "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nFrom: b\r\n\r\n", "b.txt", "b"))
+                .conflict(MergeJarTransformer.Conflict.FAIL)
+                .transform(jar("a", "z.txt", "z", "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nFrom: a\r\n\r\n"));
+
+        try (JarInputStream jar = new JarInputStream(merged.openStream())) {
+            assertNotNull(jar.getManifest(), "manifest not found first");
+            assertEquals("a", jar.getManifest().getMainAttributes().getValue("From"));
+        }
+    }
+
+    @Test
+    public void leavesOutExcludedEntries() throws IOException {
+        Artifact merged = MergeJarTransformer.of(jar("b", "META-INF/B.SF", "sig", "b.txt", "b"))
+                .exclude("META-INF/.*\\.SF")
+                .transform(jar("a", "a.txt", "a"));
+
+        assertEquals(2, read(merged).size());
+    }
+
+    @Test
+    public void keepsUnixModes() throws IOException {
+        Artifact merged = MergeJarTransformer.of().transform(unix(jar("a", "run.sh", "#!/bin/sh")));
+
+        try (SeekableByteChannel channel = merged.openChannel()) {
+            ZipIndex.Entry entry = ZipIndex.read(channel).get("run.sh");
+            assertEquals(EXECUTABLE, entry.getExternalAttributes());
+            assertEquals(3, entry.getVersionMadeBy() >> 8);
+        }
+    }
+
+    /**
+     * Marks every entry as an executable made on Unix, which ZipOutputStream can't write.
+     */
+    private static Artifact unix(Artifact jar) throws IOException {
+        byte[] data;
+        try (InputStream is = jar.openStream()) {
+            data = readAll(is);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        List<Integer> headers = new ArrayList<>();
+        for (int x = 0; x + 4 <= data.length; x++) {
+            if (buf.getInt(x) == 0x02014b50)
+                headers.add(x);
+        }
+        for (int header : headers) {
+            buf.putShort(header + 4, (short) (3 << 8 | 20));
+            buf.putInt(header + 38, EXECUTABLE);
+        }
+        return StreamableArtifact.ofBytes(jar.getIdentifier(), jar.getType(), data);
+    }
+}
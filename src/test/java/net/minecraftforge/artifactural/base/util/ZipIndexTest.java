@@ -0,0 +1,170 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.base.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipIndexTest {
+    private static final byte[] DATA = "hello hello hello hello".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File dir;
+
+    private static byte[] zip(int count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry stored = new ZipEntry("stored.txt");
+            CRC32 crc = new CRC32();
+            crc.update(DATA);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(DATA.length);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(DATA);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("dir/"));
+            zip.closeEntry();
+            for (int x = 2; x < count; x++) {
+                zip.putNextEntry(new ZipEntry("dir/" + x + ".txt"));
+                zip.write(DATA);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private ZipIndex read(byte[] data) throws IOException {
+        File file = new File(dir, "test.zip");
+        Files.write(file.toPath(), data);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return ZipIndex.read(channel);
+        }
+    }
+
+    private static int eocd(byte[] data) {
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        for (int x = data.length - 22; x >= 0; x--) {
+            if (buf.getInt(x) == 0x06054b50)
+                return x;
+        }
+        throw new IllegalStateException("No end of central directory");
+    }
+
+    @Test
+    public void readsEntries() throws IOException {
+        File file = new File(dir, "test.zip");
+        Files.write(file.toPath(), zip(3));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ZipIndex index = ZipIndex.read(channel);
+            assertEquals(3, index.getEntries().size());
+            assertEquals("stored.txt", index.getEntries().get(0).getName(), "not in central directory order");
+
+            ZipIndex.Entry stored = index.get("stored.txt");
+            assertEquals(ZipIndex.STORED, stored.getMethod());
+            assertEquals(DATA.length, stored.getSize());
+            try (InputStream is = ZipIndex.openRaw(channel, stored)) {
+                byte[] read = new byte[DATA.length + 1];
+                assertEquals(DATA.length, is.read(read));
+                assertArrayEquals(DATA, Arrays.copyOf(read, DATA.length));
+            }
+
+            assertTrue(index.get("dir/").isDirectory());
+            ZipIndex.Entry deflated = index.get("dir/2.txt");
+            assertEquals(ZipIndex.DEFLATED, deflated.getMethod());
+            assertEquals(DATA.length, deflated.getSize());
+            assertTrue(deflated.getCompressedSize() < DATA.length);
+        }
+    }
+
+    @Test
+    public void readsZip64EntryCounts() throws IOException {
+        // More entries than the plain end of central directory can count
+        byte[] data = zip(0x10000 + 10);
+        assertEquals(0xFFFF, ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getShort(eocd(data) + 10) & 0xFFFF);
+
+        ZipIndex index = read(data);
+        assertEquals(0x10000 + 10, index.getEntries().size());
+        assertEquals(DATA.length, index.get("dir/" + (0x10000 + 9) + ".txt").getSize());
+    }
+
+    @Test
+    public void rejectsMissingEnd() {
+        assertThrows(ZipException.class, () -> read(new byte[100]));
+    }
+
+    @Test
+    public void rejectsCountsPastTheCentralDirectory() throws IOException {
+        byte[] data = zip(3);
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = eocd(data);
+        buf.putShort(eocd + 8, (short) 4);
+        buf.putShort(eocd + 10, (short) 4);
+        assertThrows(ZipException.class, () -> read(data));
+    }
+
+    @Test
+    public void rejectsBrokenEntries() throws IOException {
+        byte[] data = zip(3);
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int cen = buf.getInt(eocd(data) + 16);
+        buf.putInt(cen, 0x12345678);
+        assertThrows(ZipException.class, () -> read(data));
+    }
+
+    @Test
+    public void rejectsNamesPastTheCentralDirectory() throws IOException {
+        byte[] data = zip(3);
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int cen = buf.getInt(eocd(data) + 16);
+        buf.putShort(cen + 28, (short) 0x7FFF);
+        assertThrows(ZipException.class, () -> read(data));
+    }
+
+    @Test
+    public void rejectsCentralDirectoriesOutsideTheFile() throws IOException {
+        byte[] data = zip(3);
+        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(eocd(data) + 16, data.length);
+        assertThrows(ZipException.class, () -> read(data));
+    }
+}
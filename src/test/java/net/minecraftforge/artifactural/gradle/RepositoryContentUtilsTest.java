@@ -0,0 +1,113 @@
+/*
+ * Artifactural
+ * Copyright (c) 2018-2021.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.artifactural.gradle;
+
+import net.minecraftforge.artifactural.api.artifact.ArtifactIdentifier;
+import net.minecraftforge.artifactural.base.artifact.SimpleArtifactIdentifier;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.repositories.ArtifactRepository;
+import org.gradle.api.internal.artifacts.repositories.ArtifactResolutionDetails;
+import org.gradle.api.internal.artifacts.repositories.ContentFilteringRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RepositoryContentUtilsTest {
+    private static final ArtifactIdentifier INCLUDED = new SimpleArtifactIdentifier("included", "name", "1", null, "jar");
+    private static final ArtifactIdentifier EXCLUDED = new SimpleArtifactIdentifier("excluded", "name", "1", null, "jar");
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private Action<? super ArtifactResolutionDetails> contentFilter = excluding("excluded");
+
+    private Action<ArtifactResolutionDetails> excluding(String group) {
+        return details -> {
+            calls.incrementAndGet();
+            if (details.getModuleId().getGroup().equals(group))
+                details.notFound();
+        };
+    }
+
+    /**
+     * A repository whose content filter can be swapped, as Gradle does when the content descriptor is changed.
+     */
+    private ArtifactRepository repository() {
+        return (ArtifactRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ArtifactRepository.class, ContentFilteringRepository.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getContentFilter": return contentFilter;
+                case "getName": return "test";
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "repository";
+                default: throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Test
+    public void remembersVerdicts() {
+        ArtifactRepository repository = repository();
+        assertTrue(RepositoryContentUtils.contentFilterExcludes(repository, EXCLUDED));
+        assertFalse(RepositoryContentUtils.contentFilterExcludes(repository, INCLUDED));
+        assertTrue(RepositoryContentUtils.contentFilterExcludes(repository, EXCLUDED));
+        assertFalse(RepositoryContentUtils.contentFilterExcludes(repository, INCLUDED));
+        assertEquals(2, calls.get(), "filter ran again for a remembered verdict");
+    }
+
+    @Test
+    public void forgetsVerdictsWhenTheFilterChanges() {
+        ArtifactRepository repository = repository();
+        assertTrue(RepositoryContentUtils.contentFilterExcludes(repository, EXCLUDED));
+        assertFalse(RepositoryContentUtils.contentFilterExcludes(repository, INCLUDED));
+
+        contentFilter = excluding("included");
+        assertFalse(RepositoryContentUtils.contentFilterExcludes(repository, EXCLUDED));
+        assertTrue(RepositoryContentUtils.contentFilterExcludes(repository, INCLUDED));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void keepsVerdictsPerRepository() {
+        ArtifactRepository first = repository();
+        assertTrue(RepositoryContentUtils.contentFilterExcludes(first, EXCLUDED));
+
+        contentFilter = excluding("included");
+        ArtifactRepository second = repository();
+        assertFalse(RepositoryContentUtils.contentFilterExcludes(second, EXCLUDED));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void listsIncludingRepositoriesInOrder() {
+        ArtifactRepository first = repository();
+        ArtifactRepository second = repository();
+        Map<ArtifactIdentifier, List<ArtifactRepository>> included = RepositoryContentUtils.contentFilterIncludes(Arrays.asList(INCLUDED, EXCLUDED), Arrays.asList(first, second));
+        assertEquals(Arrays.asList(first, second), included.get(INCLUDED));
+        assertEquals(Collections.emptyList(), included.get(EXCLUDED));
+    }
+}